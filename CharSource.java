@@ -0,0 +1,56 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class CharSource implements CharSequence {
+
+    private final char[] buffer;
+    private final int offset;
+    private final int length;
+
+    @Override
+    public char charAt(int index) {
+        return buffer[offset + index];
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    public String text(int start, int end) {
+        return new String(buffer, offset + start, end - start);
+    } // only materialize a token when its text is needed
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text(0, length);
+    }
+
+    public CharSource(char[] buffer) {
+        this.buffer = buffer;
+        this.offset = 0;
+        this.length = buffer.length;
+    }
+
+    public CharSource(String fileName) throws IOException {
+        // decode the whole file at once and keep the decoder's backing array
+        CharBuffer chars = Charset.defaultCharset().decode(ByteBuffer.wrap(Files.readAllBytes(Paths.get(fileName))));
+        if (chars.hasArray()) {
+            buffer = chars.array();
+            offset = chars.arrayOffset() + chars.position();
+        } else {
+            buffer = chars.toString().toCharArray();
+            offset = 0;
+        }
+        length = chars.remaining();
+    } // constructor: read the whole file
+}
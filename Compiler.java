@@ -9,6 +9,7 @@ public class Compiler {
     private List<CFGBlock> rootBlocks;
     private List<CFGBlock> cfgBlocks;
     private SymbolTable symbolTable;
+    private Variable.Pool pool;
 
     private class MachineCode {
         private int lineCount;
@@ -112,27 +113,27 @@ public class Compiler {
         }
 
         public boolean isGlobal() {
-            if (variable.getName().charAt(0) == '(')
+            if (variable.isTemporary())
                 return false;
             if (scope == null)
                 return true;
-            if (scope.getRealGlobalVariables().contains(variable.getName()))
+            if (scope.isRealGlobal(variable.getName()))
                 return true;
             return false;
         }
 
         public boolean isParam() {
-            if (variable.getName().charAt(0) == '(')
+            if (variable.isTemporary())
                 return false;
             if (scope == null)
                 return false;
-            if (scope.getRealParams().contains(variable.getName()))
+            if (scope.isRealParam(variable.getName()))
                 return true;
             return false;
         }
 
         public boolean isVariable() {
-            if (variable.getName().charAt(0) == '(')
+            if (variable.isTemporary())
                 return false;
             if (scope == null)
                 return false;
@@ -190,7 +191,7 @@ public class Compiler {
 
     private final int registerNumber;
 
-    private Map<CFGBlock, Set<LiveVariable>> vs;
+    private Map<CFGBlock, Set<Variable>> vs;
 
     private boolean showProgram = false;
 
@@ -205,6 +206,7 @@ public class Compiler {
         rootBlocks = irGenerator.getRootBlocks();
         cfgBlocks = irGenerator.getCfgBlocks();
         symbolTable = irGenerator.getSymbolTable();
+        pool = symbolTable.getPool();
         vs = irGenerator.getVariables();
     }
 
@@ -218,7 +220,7 @@ public class Compiler {
 
     private int handleSpillInt(MachineVariable v, int reg, int temp, FunctionSymbol functionSymbol) throws ErrorMessage {
         if (reg == 0) {
-            programs.add(new MachineCode(PC++, DLX.ADDI, temp, R0, Integer.parseInt(v.getVariable().getName())));
+            programs.add(new MachineCode(PC++, DLX.ADDI, temp, R0, v.getVariable().getValue()));
             return temp;
         }
 
@@ -229,11 +231,11 @@ public class Compiler {
         }
         if (v.isGlobal()) {
             if (v.getVariable().getIndex() == 0 || spill) {
-                v = new MachineVariable(new Variable(v.getVariable().getName(), 0), null);
+                v = new MachineVariable(v.getVariable().withIndex(0), null);
                 programs.add(new MachineCode(PC++, DLX.LDW, reg, GLOBAL, globalAddressMap.get(v)));
             }
         } else {
-            if ((v.getVariable().getIndex() == 0 && v.getVariable().getName().charAt(0) != '(') || spill) {
+            if ((v.getVariable().getIndex() == 0 && !v.getVariable().isTemporary()) || spill) {
                 programs.add(new MachineCode(PC++, DLX.LDW, reg, FP, localAddressMap.get(v) * 4));
             }
         }
@@ -244,7 +246,7 @@ public class Compiler {
         int a = term.getOutputRegister();
         int b = term.getSrcRegister();
         int c = term.getDstRegister();
-        MachineVariable va = new MachineVariable(new Variable("(" + term.getLineCount() + ")", 0), scope);
+        MachineVariable va = new MachineVariable(pool.temporary(term.getLineCount()), scope);
         MachineVariable vb = new MachineVariable(term.getSrc(), scope);
         MachineVariable vc = new MachineVariable(term.getDst(), scope);
 
@@ -255,11 +257,11 @@ public class Compiler {
         c = handleSpillInt(vc, c, TEMPC, scope);
 
         switch (term.getOps()) {
-            case "ADD" -> programs.add(new MachineCode(PC++, DLX.ADD, a, b, c));
-            case "MUL" -> programs.add(new MachineCode(PC++, DLX.MUL, a, b, c));
-            case "SUB" -> programs.add(new MachineCode(PC++, DLX.SUB, a, b, c));
-            case "DIV" -> programs.add(new MachineCode(PC++, DLX.DIV, a, b, c));
-            case "CMP" -> programs.add(new MachineCode(PC++, DLX.CMP, a, b, c));
+            case ADD -> programs.add(new MachineCode(PC++, DLX.ADD, a, b, c));
+            case MUL -> programs.add(new MachineCode(PC++, DLX.MUL, a, b, c));
+            case SUB -> programs.add(new MachineCode(PC++, DLX.SUB, a, b, c));
+            case DIV -> programs.add(new MachineCode(PC++, DLX.DIV, a, b, c));
+            case CMP -> programs.add(new MachineCode(PC++, DLX.CMP, a, b, c));
         }
 
         if (spilla) {
@@ -269,19 +271,19 @@ public class Compiler {
     }
 
     private void conditionalBranch(TACTerm term, FunctionSymbol scope) throws ErrorMessage {
-        term.nextTerm = nextAvailableTerm(cfgBlocks.get(Integer.parseInt(term.getDst().getName().substring(1, term.getDst().getName().length() - 1)) - 1));
+        term.nextTerm = nextAvailableTerm(cfgBlocks.get(term.getDst().getId() - 1));
         int b = term.getSrcRegister();
         MachineVariable vb = new MachineVariable(term.getSrc(), scope);
 
         b = handleSpillInt(vb, b, TEMPB, scope);
 
         MachineCode code = switch (term.getOps()) {
-            case "BNE" -> new MachineCode(PC++, DLX.BNE, b, PC);
-            case "BEQ" -> new MachineCode(PC++, DLX.BEQ, b, PC);
-            case "BGE" -> new MachineCode(PC++, DLX.BGE, b, PC);
-            case "BLT" -> new MachineCode(PC++, DLX.BLT, b, PC);
-            case "BGT" -> new MachineCode(PC++, DLX.BGT, b, PC);
-            case "BLE" -> new MachineCode(PC++, DLX.BLE, b, PC);
+            case BNE -> new MachineCode(PC++, DLX.BNE, b, PC);
+            case BEQ -> new MachineCode(PC++, DLX.BEQ, b, PC);
+            case BGE -> new MachineCode(PC++, DLX.BGE, b, PC);
+            case BLT -> new MachineCode(PC++, DLX.BLT, b, PC);
+            case BGT -> new MachineCode(PC++, DLX.BGT, b, PC);
+            case BLE -> new MachineCode(PC++, DLX.BLE, b, PC);
             default -> null;
         };
         programs.add(code);
@@ -338,7 +340,7 @@ public class Compiler {
 
         if(functionSymbol.getFunctionType() == Type.INT) {
             int reg = term.getOutputRegister();
-            MachineVariable variable = new MachineVariable(new Variable("(" + term.getLineCount() + ")", 0), preFunctionSymbol);
+            MachineVariable variable = new MachineVariable(pool.temporary(term.getLineCount()), preFunctionSymbol);
             boolean spilla = reg == 100;
             reg = handleSpillInt(variable, reg, TEMPA, preFunctionSymbol);
             programs.add(new MachineCode(PC++, DLX.ADDI, reg, TEMP, 0));
@@ -384,12 +386,12 @@ public class Compiler {
         MachineCode code = null;
         boolean spilla, spillb, spillc;
         switch (term.getOps()) {
-            case "ADDA":
+            case ADDA:
                 a = term.getOutputRegister();
                 b = term.getSrcRegister();
-                va = new MachineVariable(new Variable("(" + term.getLineCount() + ")", 0), functionSymbol);
+                va = new MachineVariable(pool.temporary(term.getLineCount()), functionSymbol);
                 vb = new MachineVariable(term.getSrc(), functionSymbol);
-                vc = new MachineVariable(new Variable(term.getDst().getName(), 0), functionSymbol, Type.ARRAY);
+                vc = new MachineVariable(pool.of(term.getDst().getName(), 0), functionSymbol, Type.ARRAY);
                 spilla = a == 100;
 
                 a = handleSpillInt(va, a, TEMPA, functionSymbol);
@@ -407,31 +409,31 @@ public class Compiler {
                     programs.add(new MachineCode(PC++, DLX.STW, a, FP, localAddressMap.get(va) * 4));
                 }
                 break;
-            case "ADD":
-            case "SUB":
-            case "MUL":
-            case "DIV":
-            case "CMP":
+            case ADD:
+            case SUB:
+            case MUL:
+            case DIV:
+            case CMP:
                 arithmatic(term, functionSymbol);
                 break;
-            case "BEQ":
-            case "BNE":
-            case "BLT":
-            case "BGE":
-            case "BLE":
-            case "BGT":
+            case BEQ:
+            case BNE:
+            case BLT:
+            case BGE:
+            case BLE:
+            case BGT:
                 conditionalBranch(term, functionSymbol);
                 break;
-            case "BRA":
-                term.nextTerm = nextAvailableTerm(cfgBlocks.get(Integer.parseInt(term.getSrc().getName().substring(1, term.getSrc().getName().length() - 1)) - 1));
+            case BRA:
+                term.nextTerm = nextAvailableTerm(cfgBlocks.get(term.getSrc().getId() - 1));
                 code = new MachineCode(PC++, DLX.BSR, PC);
                 programs.add(code);
                 branch2Fix.put(code, term);
                 break;
-            case "CALL":
+            case CALL:
                 funcCall(term, functionSymbol);
                 break;
-            case "MOVE":
+            case MOVE:
                 if (term.isMovingArray()) {
                     // TODO
                 } else {
@@ -449,7 +451,7 @@ public class Compiler {
 
                     if (spillc) {
                         if (vc.isGlobal()) {
-                            vc = new MachineVariable(new Variable(term.getDst().getName(), 0), functionSymbol);
+                            vc = new MachineVariable(pool.of(term.getDst().getName(), 0), functionSymbol);
                             programs.add(new MachineCode(PC++, DLX.STW, c, GLOBAL, globalAddressMap.get(vc)));
                         } else {
                             programs.add(new MachineCode(PC++, DLX.STW, c, FP, localAddressMap.get(vc) * 4));
@@ -457,7 +459,7 @@ public class Compiler {
                     }
                 }
                 break;
-            case "RET":
+            case RET:
                 if (functionSymbol == null) {
                     // main return is end
                     programs.add(new MachineCode(PC++, DLX.RET, 0));
@@ -465,10 +467,10 @@ public class Compiler {
                     funcReturn(term, functionSymbol);
                 }
                 break;
-            case "LOAD":
+            case LOAD:
                 a = term.getOutputRegister();
                 b = term.getSrcRegister();
-                va = new MachineVariable(new Variable("(" + term.getLineCount() + ")", 0), functionSymbol);
+                va = new MachineVariable(pool.temporary(term.getLineCount()), functionSymbol);
                 vb = new MachineVariable(term.getSrc(), functionSymbol);
                 spilla = a == 100;
                 a = handleSpillInt(va, a, TEMPA, functionSymbol);
@@ -479,13 +481,13 @@ public class Compiler {
                     programs.add(new MachineCode(PC++, DLX.STW, a, FP, localAddressMap.get(va) * 4));
                 }
                 break;
-//            case "LG":
+//            case LG:
 //                b = term.getSrcRegister();
-//                vb = new MachineVariable(new Variable(term.getSrc().getName(), 0), null);
+//                vb = new MachineVariable(pool.of(term.getSrc().getName(), 0), null);
 //                b = handleSpillInt(vb, b, TEMPB, functionSymbol);
 //                programs.add(new MachineCode(PC++, DLX.LDW, b, GLOBAL, globalAddressMap.get(vb)));
 //                break;
-            case "STORE":
+            case STORE:
                 b = term.getSrcRegister();
                 c = term.getDstRegister();
                 vb = new MachineVariable(term.getSrc(), functionSymbol);
@@ -496,25 +498,25 @@ public class Compiler {
 
                 programs.add(new MachineCode(PC++, DLX.STW, b, c, 0));
                 break;
-            case "SG":
+            case SG:
                 b = term.getSrcRegister();
                 spillb = b == 100;
                 if (symbolTable.lookupType(term.getStoreName()) == Type.ARRAY) {
                     // TODO
                     break;
                 }
-                vb = new MachineVariable(new Variable(term.getStoreName(), 0), null);
+                vb = new MachineVariable(pool.of(term.getStoreName(), 0), null);
                 if (!spillb) {
                     if (b == 0) {
-                        programs.add(new MachineCode(PC++, DLX.ADDI, TEMPB, R0, Integer.parseInt(term.getSrc().getName())));
+                        programs.add(new MachineCode(PC++, DLX.ADDI, TEMPB, R0, term.getSrc().getValue()));
                         b = TEMPB;
                     }
                     programs.add(new MachineCode(PC++, DLX.STW, b, GLOBAL, globalAddressMap.get(vb)));
                 }
                 break;
-            case "READ":
+            case READ:
                 a = term.getOutputRegister();
-                va = new MachineVariable(new Variable("(" + term.getLineCount() + ")", 0), functionSymbol);
+                va = new MachineVariable(pool.temporary(term.getLineCount()), functionSymbol);
                 spilla = a == 100;
                 a = handleSpillInt(va, a, TEMPA, functionSymbol);
 
@@ -523,13 +525,13 @@ public class Compiler {
                     programs.add(new MachineCode(PC++, DLX.STW, a, FP, localAddressMap.get(va) * 4));
                 }
                 break;
-            case "WRITE":
+            case WRITE:
                 b = term.getSrcRegister();
                 vb = new MachineVariable(term.getSrc(), functionSymbol);
                 b = handleSpillInt(vb, b, TEMPB, functionSymbol);
                 programs.add(new MachineCode(PC++, DLX.WRD, b));
                 break;
-            case "WRITENL":
+            case WRITENL:
                 programs.add(new MachineCode(PC++, DLX.WRL));
                 break;
             default:
@@ -546,10 +548,10 @@ public class Compiler {
         // push temps array
         if (root.getCurrentScope() != null) {
             FunctionSymbol functionSymbol = root.getCurrentScope();
-            for (LiveVariable v : vs.get(root)) {
+            for (Variable v : vs.get(root)) {
                 int index = functionAddressIndex.get(functionSymbol);
-                if (functionSymbol.lookupType(v.getName()) == Type.ARRAY) {
-                    MachineVariable machineVariable = new MachineVariable(new Variable(v.getName(), 0), functionSymbol, Type.ARRAY);
+                if (v.isNamed() && functionSymbol.lookupType(v.getName()) == Type.ARRAY) {
+                    MachineVariable machineVariable = new MachineVariable(pool.of(v.getName(), 0), functionSymbol, Type.ARRAY);
                     List<Integer> arrayParams = functionSymbol.lookupArrayParams(v.getName());
                     int size = 1;
                     for (int i = 0; i < arrayParams.size(); i++) {
@@ -562,8 +564,8 @@ public class Compiler {
                     localAddressMap.put(machineVariable, index);
                     functionAddressIndex.put(functionSymbol, index + size);
                 } else {
-                    MachineVariable machineVariable = new MachineVariable(new Variable(v.getName(), v.getIndex()), functionSymbol);
-                    if (machineVariable.isVariable() || v.getName().charAt(0) == '(') {
+                    MachineVariable machineVariable = new MachineVariable(v, functionSymbol);
+                    if (machineVariable.isVariable() || v.isTemporary()) {
                         programs.add(new MachineCode(PC++, DLX.PSH, R0, SP, 4));
                         offset++;
                         localAddressMap.put(machineVariable, index);
@@ -574,15 +576,15 @@ public class Compiler {
 
             List<String> params = functionSymbol.getRealParams();
             for (int i = 0; i < params.size(); i++) {
-                MachineVariable machineVariable = new MachineVariable(new Variable(params.get(i), 0), functionSymbol);
+                MachineVariable machineVariable = new MachineVariable(pool.of(params.get(i), 0), functionSymbol);
                 Integer paramLoc = i - params.size() - 1;
                 localAddressMap.put(machineVariable, paramLoc);
             }
         } else {
-            for (LiveVariable v : vs.get(root)) {
+            for (Variable v : vs.get(root)) {
                 int index = functionAddressIndex.get(new FunctionSymbol(-1));
-                MachineVariable machineVariable = new MachineVariable(new Variable(v.getName(), v.getIndex()), null);
-                if (v.getName().charAt(0) == '(') {
+                MachineVariable machineVariable = new MachineVariable(v, null);
+                if (v.isTemporary()) {
                     programs.add(new MachineCode(PC++, DLX.PSH, R0, SP, 4));
                     offset++;
                     localAddressMap.put(machineVariable, index);
@@ -713,7 +715,7 @@ public class Compiler {
         // initialize globals
         for (String global: symbolTable.getGlobalVariables()) {
             if (symbolTable.getVariable2type().get(global) == Type.ARRAY) {
-                MachineVariable machineVariable = new MachineVariable(new Variable(global, 0), null, Type.ARRAY);
+                MachineVariable machineVariable = new MachineVariable(pool.of(global, 0), null, Type.ARRAY);
                 List<Integer> arrayParams = symbolTable.lookupArrayParam(global);
                 int size = 1;
                 for (int i = 0; i < arrayParams.size(); i++) {
@@ -725,7 +727,7 @@ public class Compiler {
                     programs.add(new MachineCode(PC++, DLX.STW, R0, GLOBAL, globalAddressMap.get(machineVariable) + 4 * i));
                 }
             } else {
-                MachineVariable machineVariable = new MachineVariable(new Variable(global, 0), null);
+                MachineVariable machineVariable = new MachineVariable(pool.of(global, 0), null);
                 globalAddressMap.put(machineVariable, newAddressIndex(1));
                 // initialize as zero
                 programs.add(new MachineCode(PC++, DLX.STW, R0, GLOBAL, globalAddressMap.get(machineVariable)));
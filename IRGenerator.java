@@ -6,7 +6,9 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static parser.EBNFUtil.isNumeric;
 
@@ -21,13 +23,12 @@ public class IRGenerator {
     private List<Integer> exits;
     private List<CFGBlock> rootBlocks;
     private List<CFGBlock> exitBlocks;
-    private Map<TACTerm, Set<LiveVariable>> exitVariables;
-    private Map<CFGBlock, Set<LiveVariable>> variables;
+    private Analysis liveness;
+    private Map<CFGBlock, Set<Variable>> variables;
 
     private TypeChecker typeChecker;
     private RegisterAllocation register;
-    private static Set<String> jumps = new HashSet<>(Arrays.asList("BEQ", "BNE", "BLT", "BGE", "BGT", "BLE", "BRA"));
-    private static Set<String> arithmatics = new HashSet<>(Arrays.asList("ADD", "ADDA", "SUB", "MUL", "DIV", "CMP", "LOAD", "READ"));
+    private final Variable.Pool pool; // the Variables of this compilation, shared with the forks
 
     private int lineCount = 0;
     private int blocks = 0;
@@ -43,8 +44,8 @@ public class IRGenerator {
         this.outputPreFilename = "./output/pre-" + filenames[filenames.length - 1] + ".dot";
         this.outputPostFilename = "./output/post-" + filenames[filenames.length - 1] + ".dot";
 
-        Parser parser = new Parser(args[0]);
         this.symbolTable = new SymbolTable();
+        this.pool = symbolTable.getPool();
 
         this.cfgBlocks = new ArrayList<>();
         this.terms = new ArrayList<>();
@@ -55,9 +56,8 @@ public class IRGenerator {
         this.exitBlocks = new ArrayList<>();
         this.typeChecker = new TypeChecker();
 
-        while (parser.Derivation()) ;
         newBlock();
-        AST2IR(parser.getRoot());
+        generate(args[0]);
         // last one is main
         for (Integer root : roots) rootBlocks.add(cfgBlocks.get(root - 1));
         for (Integer exit : exits) exitBlocks.add(cfgBlocks.get(exit - 1));
@@ -216,6 +216,213 @@ public class IRGenerator {
         }
     }
 
+    // lowers a single function on its own, see generate
+    private IRGenerator(SymbolTable symbolTable) {
+        this.outputPreFilename = null;
+        this.outputPostFilename = null;
+        this.symbolTable = symbolTable;
+        this.pool = symbolTable.getPool();
+        this.cfgBlocks = new ArrayList<>();
+        this.terms = new ArrayList<>();
+        this.roots = new ArrayList<>();
+        this.exits = new ArrayList<>();
+        this.typeChecker = new TypeChecker(true);
+        newBlock();
+    }
+
+    // lowers a single function in place into outer's IR, as lowering in source order does
+    private IRGenerator(SymbolTable symbolTable, IRGenerator outer) {
+        this.outputPreFilename = null;
+        this.outputPostFilename = null;
+        this.symbolTable = symbolTable;
+        this.pool = symbolTable.getPool();
+        this.cfgBlocks = outer.cfgBlocks;
+        this.terms = outer.terms;
+        this.roots = outer.roots;
+        this.exits = outer.exits;
+        this.typeChecker = outer.typeChecker;
+        this.lineCount = outer.lineCount;
+        this.blocks = outer.blocks;
+    }
+
+    /**
+     * Lower every global declaration and function as soon as it is parsed, only main's body is kept as a tree.
+     * With more than one function they are split off the token stream and parsed on the common pool while
+     * this thread parses the globals and main. Each function is then lowered on its own, numbering its terms
+     * and blocks from 1 with a symbol table that sees the globals and the functions declared up to it, and
+     * the results are appended in source order, so the IR is the same as lowering them one after another.
+     */
+    private void generate(String fileName) throws IOException, ErrorMessage {
+        TokenStream tokens = new TokenStream(fileName);
+        Parser parser = new Parser(tokens);
+        parser.setDeclarationListener(this::AST2IR);
+        int[] functions = Parser.splitFunctions(tokens);
+        if (functions.length < 4) {
+            while (parser.Derivation()) ;
+            AST2IR(parser.getRoot());
+            return;
+        }
+
+        List<Future<Parser>> parsed = new ArrayList<>();
+        for (int i = 0; i < functions.length; i += 2) {
+            int from = functions[i];
+            int to = functions[i + 1];
+            parsed.add(ForkJoinPool.commonPool().submit(() -> parseFunction(tokens, from, to)));
+        }
+        parser.skipFunctions(functions);
+        parser.parseAll();
+        List<Parser> parsers = new ArrayList<>(List.of(parser));
+        for (Future<Parser> function : parsed) {
+            parsers.add(join(function));
+        }
+        if (parsers.stream().anyMatch(Parser::hasErrors)) {
+            throw Parser.syntaxErrors(parsers);
+        }
+        List<ASTTreeNode> declarations = new ArrayList<>();
+        for (Parser function : parsers.subList(1, parsers.size())) {
+            declarations.add(function.getRoot());
+        }
+
+        // the globals are known now, every function is declared before any lowering starts so the forks only read the table
+        int declared = 0;
+        try {
+            for (ASTTreeNode declaration : declarations) {
+                declare(declaration);
+                declared++;
+            }
+        } finally {
+            // a redefinition is reported after the functions declared before it are lowered, as in source order
+            lowerFunctions(declarations.subList(0, declared));
+        }
+        AST2IR(parser.getRoot());
+    }
+
+    /**
+     * Lowers each function on its own on the common pool and appends them in source order. A function
+     * that may read a term from before it is lowered in place, numbered where the IR stands, and so is
+     * one whose unit reports an ErrorMessage: lowered in place it reports what lowering in order does,
+     * line numbers included. Anything else a unit throws is rethrown when its turn comes.
+     */
+    private void lowerFunctions(List<ASTTreeNode> declarations) throws ErrorMessage {
+        List<Future<IRGenerator>> lowered = new ArrayList<>();
+        for (int i = 0; i < declarations.size(); i++) {
+            ASTTreeNode body = declarations.get(i).getChild(2);
+            if (readsEarlierTerm(body)) {
+                lowered.add(null);
+                continue;
+            }
+            SymbolTable scope = symbolTable.fork(i + 1);
+            lowered.add(ForkJoinPool.commonPool().submit(() -> {
+                IRGenerator unit = new IRGenerator(scope);
+                try {
+                    unit.lowerFunction(body, scope.getCurrent());
+                } catch (ErrorMessage e) {
+                    return null; // lowered again in place below, which reports it
+                }
+                return unit;
+            }));
+        }
+        for (int i = 0; i < declarations.size(); i++) {
+            IRGenerator unit = lowered.get(i) == null ? null : join(lowered.get(i));
+            if (unit != null) {
+                merge(unit);
+                continue;
+            }
+            SymbolTable scope = symbolTable.fork(i + 1);
+            scope.getCurrent().clearBody();
+            scope.getCurrent().setEntryBlockID(blocks);
+            unit = new IRGenerator(scope, this);
+            unit.lowerFunction(declarations.get(i).getChild(2), scope.getCurrent());
+            lineCount = unit.lineCount;
+            blocks = unit.blocks;
+        }
+    }
+
+    /**
+     * Whether lowering node may take the term made last without making one first, which at the start
+     * of a body is a term of the function before: a DIV after the head of a PRODUCT makes no term of
+     * its own, nor does OutputNum without an argument.
+     */
+    private static boolean readsEarlierTerm(ASTTreeNode node) {
+        if (node == null) {
+            return false;
+        }
+        if (node.getKind() == ASTTreeNode.PRODUCT) {
+            for (int i = 2; i < node.size(); i++) {
+                if (node.getOp(i) != 1) {
+                    return true;
+                }
+            }
+        }
+        if (node.getKind() == ASTTreeNode.FUNC_CALL && node.size() == 1 && node.getChild(0).getValue().equals("OutputNum")) {
+            return true;
+        }
+        for (int i = 0; i < node.size(); i++) {
+            if (readsEarlierTerm(node.getChild(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // its syntax errors are reported with the others by generate
+    private static Parser parseFunction(TokenStream tokens, int from, int to) throws ErrorMessage {
+        Parser parser = new Parser(tokens, from, to);
+        parser.parseAll();
+        return parser;
+    }
+
+    private static <T> T join(Future<T> future) throws ErrorMessage {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            // the pool may wrap what the task threw in a copy of it made on this thread,
+            // and a checked exception in a plain RuntimeException
+            Throwable cause = e.getCause();
+            while (cause.getCause() != null && (cause.getCause().getClass() == cause.getClass()
+                    || cause.getClass() == RuntimeException.class)) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof ErrorMessage) {
+                throw (ErrorMessage) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause; // failed assertions of the type checks
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    // append a function lowered on its own, its entry block takes the place of the open block
+    private void merge(IRGenerator unit) {
+        int lineOffset = lineCount;
+        int blockOffset = blocks - 1;
+        cfgBlocks.remove(blocks - 1);
+        for (TACTerm term : unit.terms) {
+            term.rebase(lineOffset, blockOffset);
+        }
+        for (CFGBlock block : unit.cfgBlocks) {
+            block.rebase(blockOffset);
+        }
+        for (Integer root : unit.roots) {
+            roots.add(root + blockOffset);
+        }
+        for (Integer exit : unit.exits) {
+            exits.add(exit + blockOffset);
+        }
+        unit.symbolTable.getCurrent().setEntryBlockID(blockOffset + 1);
+        terms.addAll(unit.terms);
+        cfgBlocks.addAll(unit.cfgBlocks);
+        lineCount += unit.lineCount;
+        blocks += unit.blocks - 1;
+    }
+
     private void DFSPrintGraph(CFGBlock block, PrintWriter writer) {
         block.setVisited(true);
         writer.println(block);
@@ -256,51 +463,49 @@ public class IRGenerator {
         return rootBlocks;
     }
 
-    public Map<CFGBlock, Set<LiveVariable>> getVariables() {
+    public Map<CFGBlock, Set<Variable>> getVariables() {
         return variables;
     }
 
     private void registerOptimization(Analysis analysis) {
         translatePHI2MOVE();
         analysis.livenessAnalysis();
-        this.exitVariables = analysis.getEntriesLiveVariables();
+        this.liveness = analysis;
         this.variables = new HashMap<>();
         detectEmptyBlock();
         reset();
         for (CFGBlock block: rootBlocks) {
-            Set<LiveVariable> vs = registerAllocation(block);
+            Set<Variable> vs = registerAllocation(block);
             this.variables.put(block, vs);
         }
         reset();
     }
 
-    private Set<LiveVariable> registerAllocation(CFGBlock root) {
+    private Set<Variable> registerAllocation(CFGBlock root) {
         reset();
         root.setVisited(true);
-        Map<LiveVariable, RegisterGraphNode> nodesMap = new HashMap();
+        Map<Variable, RegisterGraphNode> nodesMap = new HashMap();
         Queue<CFGBlock> queue = new LinkedList<>();
         queue.add(root);
         while (queue.size() != 0) {
             CFGBlock block = queue.poll();
-            for (TACTerm term: block.getTerms()) {
-                if (term.isDeleted())
-                    continue;
-                Set<LiveVariable> variables = this.exitVariables.get(term);
-                for (LiveVariable variable: variables) {
+            // live sets come one term at a time, last term first
+            this.liveness.walkEntriesLiveVariables(block, (term, variables) -> {
+                for (Variable variable: variables) {
                     if (nodesMap.get(variable) == null) {
                         nodesMap.put(variable, new RegisterGraphNode(variable));
                     }
                 }
-                for (LiveVariable variable: variables) {
+                for (Variable variable: variables) {
                     RegisterGraphNode node = nodesMap.get(variable);
                     Set<RegisterGraphNode> nodes = node.getNeighbors();
-                    for (LiveVariable liveVariable: variables) {
+                    for (Variable liveVariable: variables) {
                         RegisterGraphNode liveNode = nodesMap.get(liveVariable);
                         if (!liveNode.equals(node))
                             nodes.add(liveNode);
                     }
                 }
-            }
+            });
             Set<CFGBlock> blocks = block.getCfgChildren();
             for (CFGBlock cfgBlock : blocks) {
                 if (!cfgBlock.isVisited()) {
@@ -320,12 +525,12 @@ public class IRGenerator {
             for (TACTerm term: block.getTerms()) {
                 if (term.isDeleted())
                     continue;
-                if (term.getOps().equals("CALL")) {
+                if (term.getOps() == TacOp.CALL) {
                     List<Integer> dstsRegister = new ArrayList<>();
                     for (Variable dst: term.getDsts()) {
                         boolean add = false;
                         for (RegisterGraphNode value: valueSet) {
-                            if (value.getVariable().getName().equals(dst.getName()) && Objects.equals(value.getVariable().getIndex(), dst.getIndex())) {
+                            if (value.getVariable().equals(dst)) {
                                 dstsRegister.add(value.getColor());
                                 add = true;
                                 break;
@@ -336,25 +541,25 @@ public class IRGenerator {
                     }
                     term.setDstsRegister(dstsRegister);
                     for (RegisterGraphNode value: valueSet) {
-                        if (value.getVariable().getName().equals("(" + term.getLineCount() + ")") && value.getVariable().getIndex() == 0) {
+                        if (value.getVariable().equals(pool.temporary(term.getLineCount()))) {
                             term.setOutputRegister(value.getColor());
                         }
                     }
                 } else {
                     for (RegisterGraphNode value: valueSet) {
-                        if (term.getSrc() != null && value.getVariable().getName().equals(term.getSrc().getName()) && Objects.equals(value.getVariable().getIndex(), term.getSrc().getIndex())) {
+                        if (term.getSrc() != null && value.getVariable().equals(term.getSrc())) {
                             term.setSrcRegister(value.getColor());
                         }
                     }
                     for (RegisterGraphNode value: valueSet) {
-                        if (term.getDst() != null && value.getVariable().getName().equals(term.getDst().getName()) && Objects.equals(value.getVariable().getIndex(), term.getDst().getIndex())) {
+                        if (term.getDst() != null && value.getVariable().equals(term.getDst())) {
                             term.setDstRegister(value.getColor());
                         }
                     }
 
-                    if (arithmatics.contains(term.getOps())) {
+                    if (term.getOps().definesValue()) {
                         for (RegisterGraphNode value: valueSet) {
-                            if (value.getVariable().getName().equals("(" + term.getLineCount() + ")") && value.getVariable().getIndex() == 0) {
+                            if (value.getVariable().equals(pool.temporary(term.getLineCount()))) {
                                 term.setOutputRegister(value.getColor());
                             }
                         }
@@ -388,7 +593,7 @@ public class IRGenerator {
     private void DFSConstructBlocks(CFGBlock block) throws ErrorMessage {
         block.setVisited(true);
         for (TACTerm term : block.getTerms()) {
-            if (term.getOps().equals("CALL")) {
+            if (term.getOps() == TacOp.CALL) {
                 FunctionSymbol function = symbolTable.lookupFunctionSymbol(term.getSrc().getName(), term.getDsts().size());
                 term.setFuncCall(cfgBlocks.get(function.getEntryBlockID() - 1));
             }
@@ -442,7 +647,7 @@ public class IRGenerator {
                                 FunctionSymbol functionSymbol = block.getCurrentScope();
                                 functionSymbol.setEntryBlockID(child.getBlockIndex());
                                 for (TACTerm term: terms) {
-                                    if (term.getOps().equals("CALL") && term.getSrc().getName().equals(functionSymbol.getFunctionName())
+                                    if (term.getOps() == TacOp.CALL && term.getSrc().getName().equals(functionSymbol.getFunctionName())
                                             && term.getDsts().size() == functionSymbol.getParams().size()) {
                                         term.setFuncCall(child);
                                     }
@@ -455,13 +660,12 @@ public class IRGenerator {
                     CFGBlock child = block.getCfgChildren().iterator().next();
                     for (CFGBlock cfgBlock : block.getCfgParents()) {
                         for(TACTerm term: cfgBlock.getTerms()) {
-                            if ((term.getOps().equals("BEQ") || term.getOps().equals("BNE") || term.getOps().equals("BLT")
-                                    || term.getOps().equals("BGE") || term.getOps().equals("BGT") || term.getOps().equals("BLE")) &&
-                                Integer.parseInt(term.getDst().getName().substring(1, term.getDst().getName().length() - 1)) == block.getBlockIndex()) {
-                                term.setDst(new Variable("[" + child.getBlockIndex() + "]", 0));
-                            } else if(term.getOps().equals("BRA") &&
-                                    Integer.parseInt(term.getDst().getName().substring(1, term.getDst().getName().length() - 1)) == block.getBlockIndex()) {
-                                term.setSrc(new Variable("[" + child.getBlockIndex() + "]", 0));
+                            if (term.getOps().isBranch() && term.getOps() != TacOp.BRA &&
+                                term.getDst().getId() == block.getBlockIndex()) {
+                                term.setDst(pool.label(child.getBlockIndex()));
+                            } else if(term.getOps() == TacOp.BRA &&
+                                    term.getDst().getId() == block.getBlockIndex()) {
+                                term.setSrc(pool.label(child.getBlockIndex()));
                             }
                         }
                         cfgBlock.removeCFGChildren(block);
@@ -487,16 +691,16 @@ public class IRGenerator {
         for (TACTerm term: block.getTerms()) {
             if (term.isDeleted())
                 continue;
-            if (term.getOps().equals("PHI")) {
+            if (term.getOps() == TacOp.PHI) {
                 term.setDeleted(true);
                 for (int i = 0; i < term.getDsts().size(); i++) {
                     CFGBlock cfgBlock = term.getPhiSources().get(i);
                     int offset = 0;
-                    if (jumps.contains(cfgBlock.getTerms().get(cfgBlock.getTerms().size() - 1).getOps())) {
+                    if (cfgBlock.getTerms().get(cfgBlock.getTerms().size() - 1).getOps().isBranch()) {
                         offset = 1;
                     }
                     cfgBlock.getTerms().add(cfgBlock.getTerms().size() - offset,
-                            new TACTerm(term.getLineCount(), "MOVE", term.getDsts().get(i), new Variable(term.getSrc().getName(), term.getLineCount()), Type.VOID, i));
+                            new TACTerm(term.getLineCount(), TacOp.MOVE, term.getDsts().get(i), pool.of(term.getSrc().getName(), term.getLineCount()), Type.VOID, i));
                 }
             }
         }
@@ -513,29 +717,22 @@ public class IRGenerator {
         cfgBlocks.add(new CFGBlock(blocks, symbolTable.getCurrent()));
     }
 
-    private TACTerm generateTAC(String ops, String source, String target) throws ErrorMessage {
+    private TACTerm generateCall(String function, List<Variable> params) throws ErrorMessage {
+        lineCount++;
+        for (Variable param : params) {
+            assert (getType(param) == Type.INT) :
+                    "Params of function " + function + " with param size " + params.size() + " should be VAR types";
+        }
+        Type derivedType = symbolTable.lookupFunctionSymbol(function, params.size()).getFunctionType();
+        return insert(new TACTerm(lineCount, TacOp.CALL, pool.of(function, 0), params, derivedType));
+    }
+
+    private TACTerm generateTAC(TacOp ops, Variable source, Variable target) throws ErrorMessage {
         lineCount++;
         Type derivedType;
         TACTerm term;
         switch (ops) {
-            case "CALL" -> {
-                List<String> params;
-                int targetSize;
-                if (target != null) {
-                    params = Arrays.asList(target.split(","));
-                    targetSize = params.size();
-                    for (String param : params) {
-                        assert (getType(param) == Type.INT) :
-                                "Params of function " + source + " with param size " + targetSize + " should be VAR types";
-                    }
-                } else {
-                    params = new ArrayList<>();
-                    targetSize = 0;
-                }
-                derivedType = symbolTable.lookupFunctionSymbol(source, targetSize).getFunctionType();
-                term = new TACTerm(lineCount, ops, source, params, derivedType);
-            }
-            case "RET" -> {
+            case RET -> {
                 if (symbolTable.getCurrent() == null) {
                     assert (source == null) : "Should not return anything in main function";
                     derivedType = Type.VOID;
@@ -553,29 +750,29 @@ public class IRGenerator {
                 }
                 term = new TACTerm(lineCount, ops, source, target, derivedType);
             }
-            case "MOVE" -> {
+            case MOVE -> {
                 assert getType(source) == getType(target): "MOVE operation should have same type for the two terms";
-                assert !isNumeric(target): "MOVE operation cannot have number as second term";
-                assert target.charAt(0) != '(': "MOVE operation cannot move to line count variable";
+                assert !target.isNumber(): "MOVE operation cannot have number as second term";
+                assert !target.isTemporary(): "MOVE operation cannot move to line count variable";
                 term = new TACTerm(lineCount, ops, source, target, Type.VOID);
                 if (getType(source) == Type.ARRAY)
                     term.setMovingArray(true);
             }
-            case "STORE" -> {
+            case STORE -> {
                 assert (getType(source) == Type.INT) : "STORE should store INT type";
                 assert (getType(target) == Type.ARRAY) : "STORE should store into ARRAY type";
                 term = new TACTerm(lineCount, ops, source, target, Type.VOID);
             }
-            case "ADDA" -> {
+            case ADDA -> {
                 assert (getType(source) == Type.INT) : "ADDA should have INT type offset";
                 assert (getType(target) == Type.ARRAY) : "ADDA should match ARRAY type";
                 term = new TACTerm(lineCount, ops, source, target, Type.ARRAY);
             }
-            case "LOAD" -> {
+            case LOAD -> {
                 assert (getType(source) == Type.ARRAY) : "LOAD should have ARRAY type address";
                 term = new TACTerm(lineCount, ops, source, target, Type.INT);
             }
-            case "WRITE" -> {
+            case WRITE -> {
                 assert (getType(source) == Type.INT) : "WRITE should have INT type as input";
                 term = new TACTerm(lineCount, ops, source, target, Type.VOID);
             }
@@ -584,27 +781,26 @@ public class IRGenerator {
                 term = new TACTerm(lineCount, ops, source, target, derivedType);
             }
         }
+        return insert(term);
+    }
 
+    private TACTerm insert(TACTerm term) {
         cfgBlocks.get(blocks - 1).insertTerm(term);
         terms.add(term);
         return term;
     }
 
-    private Type getType(String target) throws ErrorMessage {
-        Type dstType;
-        if (target == null || target.charAt(0) == '[') {
+    private Type getType(Variable target) throws ErrorMessage {
+        if (target == null || target.isLabel()) {
             return Type.VOID;
         }
-        if (target.charAt(0) == '(') {
-            dstType = terms.get(Integer.parseInt(target.substring(1, target.length() - 1)) - 1).getDerivedType();
-        } else {
-            if (isNumeric(target)) {
-                dstType = Type.INT;
-            } else {
-                dstType = symbolTable.lookupType(target);
-            }
+        if (target.isTemporary()) {
+            return terms.get(target.getId() - 1).getDerivedType();
+        }
+        if (target.isNumber()) {
+            return Type.INT;
         }
-        return dstType;
+        return symbolTable.lookupType(target.getName());
     }
 
     private void generateConnections(int startBlock, int endBlock, String label) {
@@ -613,237 +809,220 @@ public class IRGenerator {
     }
 
 
-    private String AST2IR(ASTTreeNode node) throws ErrorMessage {
+    // a SUM at operand i, the closure form of the grammar made it right associative
+    private Variable sum(ASTTreeNode node, int i) throws ErrorMessage {
+        if (i + 1 == node.size()) {
+            return AST2IR(node.getChild(i));
+        }
+        generateTAC(node.getOp(i + 1) == 3 ? TacOp.ADD : TacOp.SUB, AST2IR(node.getChild(i)), sum(node, i + 1));
+        return pool.temporary(lineCount);
+    }
+
+    // a PRODUCT at operand i, as the closure form only the head of a term divides
+    private Variable product(ASTTreeNode node, int i) throws ErrorMessage {
+        if (i + 1 == node.size()) {
+            return AST2IR(node.getChild(i));
+        }
+        if (node.getOp(i + 1) == 1) {
+            generateTAC(TacOp.MUL, AST2IR(node.getChild(i)), product(node, i + 1));
+        } else if (i == 0) {
+            generateTAC(TacOp.DIV, AST2IR(node.getChild(i)), product(node, i + 1));
+        }
+        return pool.temporary(lineCount);
+    }
+
+    // address of an indexed designator
+    private Variable address(ASTTreeNode designator) throws ErrorMessage {
+        Variable ident = AST2IR(designator.getChild(0));
+        Type type = symbolTable.lookupType(ident.getName());
+        assert (type == Type.ARRAY) : "Indexing VAR type instead of ARRAY type";
+        List<Integer> lengths = symbolTable.lookupArrayParam(ident.getName());
+        List<Variable> designators = new ArrayList<>();
+        for (int i = 1; i < designator.size(); i++) {
+            designators.add(AST2IR(designator.getChild(i)));
+        }
+        assert (designators.size() == lengths.size()) : "ARRAY Indexing should use the same length as the declaration";
+        if (designators.size() > 1) {
+            generateTAC(TacOp.MUL, designators.get(0), pool.constant(lengths.get(1)));
+            generateTAC(TacOp.ADD, pool.temporary(lineCount), designators.get(1));
+            for (int i = 1; i < designators.size() - 1; i++) {
+                generateTAC(TacOp.MUL, pool.temporary(lineCount), pool.constant(lengths.get(i + 1)));
+                generateTAC(TacOp.ADD, pool.temporary(lineCount), designators.get(i + 1));
+            }
+            generateTAC(TacOp.MUL, pool.temporary(lineCount), pool.constant(4));
+        } else {
+            generateTAC(TacOp.MUL, designators.get(0), pool.constant(4));
+        }
+
+        generateTAC(TacOp.ADDA, pool.temporary(lineCount), ident);
+        return pool.temporary(lineCount);
+    }
+
+    // the FunctionSymbol of a funcDecl, entered into the symbol table
+    private FunctionSymbol declare(ASTTreeNode node) throws ErrorMessage {
+        Type functionType = node.getOp() == 63 ? Type.VOID : Type.INT;
+        String ident = node.getChild(0).getValue();
+        ASTTreeNode formalParam = node.getChild(1);
+        List<String> params = new ArrayList<>();
+        for (int i = 0; i < formalParam.size(); i++) {
+            params.add(formalParam.getChild(i).getValue());
+        }
+        FunctionSymbol scope = new FunctionSymbol(symbolTable, functionType, ident, params, blocks);
+        symbolTable.insertFunctionSymbol(scope);
+        return scope;
+    }
+
+    // a function body starting in the current block, the next block is left open after it
+    private void lowerFunction(ASTTreeNode body, FunctionSymbol scope) throws ErrorMessage {
+        String parameters = scope.getParams().isEmpty() ? null : String.join(",", scope.getParams());
+        symbolTable.setCurrent(scope);
+        roots.add(blocks);
+        cfgBlocks.get(blocks - 1).setCurrentScope(scope);
+        AST2IR(body);
+        if (scope.getFunctionType() == Type.VOID && scope.getReturnTypes().size() > 0) {
+            throw new ErrorMessage("Type Checking", "Empty return", "Should not return value in void function " + scope.getFunctionName() + "(" + parameters + ")");
+        }
+        if (scope.getFunctionType() == Type.INT && scope.getReturnTypes().size() == 0) {
+            throw new ErrorMessage("Type Checking", "Value return", "Function " + scope.getFunctionName() + "(" + parameters + ")" + " should return value");
+        }
+        if (cfgBlocks.get(cfgBlocks.size() - 1).getTerms().size() == 0 || terms.get(terms.size() - 1).getOps() != TacOp.RET)
+            generateTAC(TacOp.RET, null, null);
+        exits.add(blocks);
+        newBlock();
+    }
+
+    private Variable AST2IR(ASTTreeNode node) throws ErrorMessage {
         // DFS
-        List<ASTTreeNode> children = node.getChildren();
         ASTTreeNode relation;
-        String exp1;
-        String exp2;
-
-        switch (node.getSymbol()) {
-            case "number":
-                if (children.size() == 2) {
-                    return "-" + children.get(1).getValue();
-                } else {
-                    return children.get(0).getValue();
-                }
-            case "ident":
-                return children.get(0).getValue();
-            case "term":
-                if (children.get(1).getChildren().size() > 0) {
-                    if (children.get(1).getChildren().get(0).getSymbol().equals("1")) {
-                        generateTAC("MUL", AST2IR(children.get(0)), AST2IR(children.get(1)));
-                    } else if (children.get(1).getChildren().get(0).getSymbol().equals("2")) {
-                        generateTAC("DIV", AST2IR(children.get(0)), AST2IR(children.get(1)));
-                    }
-                    return "(" + lineCount + ")";
-                } else {
-                    return AST2IR(children.get(0));
-                }
-            case "termClosure":
-                if (children.get(2).getChildren().size() > 0) {
-                    if (children.get(2).getChildren().get(0).getSymbol().equals("3")) {
-                        generateTAC("ADD", AST2IR(children.get(1)), AST2IR(children.get(2)));
-                    } else if (children.get(2).getChildren().get(0).getSymbol().equals("4")) {
-                        generateTAC("SUB", AST2IR(children.get(1)), AST2IR(children.get(2)));
-                    }
-                    return "(" + lineCount + ")";
-                } else {
-                    return AST2IR(children.get(1));
-                }
-            case "factor":
-                if (children.size() > 1) {
-                    return AST2IR(children.get(1));
-                } else {
-                    String fac = AST2IR(children.get(0));
-                    if (children.get(0).getSymbol().equals("designator") && fac != null && fac.charAt(0) == '(') {
-                        generateTAC("LOAD", fac, null);
-                        return "(" + lineCount + ")";
-                    }
-                    return fac;
-                }
-            case "funcCall":
-                ASTTreeNode expressionClosure = children.get(3);
+        Variable exp1;
+        Variable exp2;
+
+        switch (node.getKind()) {
+            case ASTTreeNode.NUMBER:
+                return pool.constant(Integer.parseInt(node.getValue()));
+            case ASTTreeNode.IDENT:
+                return pool.of(node.getValue(), 0);
+            case ASTTreeNode.SUM:
+                return sum(node, 0);
+            case ASTTreeNode.PRODUCT:
+                return product(node, 0);
+            case ASTTreeNode.DESIGNATOR:
+                // an indexed designator used as a factor
+                generateTAC(TacOp.LOAD, address(node), null);
+                return pool.temporary(lineCount);
+            case ASTTreeNode.FUNC_CALL:
                 String funcName;
 
-                if (expressionClosure.getChildren().size() > 0) {
-                    List<String> expressions = new ArrayList<>();
-                    expressions.add(AST2IR(expressionClosure.getChildren().get(0)));
-                    ASTTreeNode expressionSubClosure = expressionClosure.getChildren().get(1);
-                    while (expressionSubClosure.getChildren().size() > 0) {
-                        expressions.add(AST2IR(expressionSubClosure.getChildren().get(1)));
-                        expressionSubClosure = expressionSubClosure.getChildren().get(2);
+                if (node.size() > 1) {
+                    List<Variable> expressions = new ArrayList<>();
+                    for (int i = 1; i < node.size(); i++) {
+                        expressions.add(AST2IR(node.getChild(i)));
                     }
-                    funcName = AST2IR(children.get(1));
+                    funcName = node.getChild(0).getValue();
                     assert (funcName != null) : "Calling function should have name";
                     if (!(funcName.equals("OutputNum") || funcName.equals("InputNum") || funcName.equals("OutputNewLine")))
-                        generateTAC("CALL", funcName, String.join(",", expressions));
+                        generateCall(funcName, expressions);
                     else {
                         if (funcName.equals("OutputNum"))
-                            for (String expression : expressions)
-                                generateTAC("WRITE", expression, null);
+                            for (Variable expression : expressions)
+                                generateTAC(TacOp.WRITE, expression, null);
 
                         assert (!funcName.equals("InputNum") && !funcName.equals("OutputNewLine")) : "Calling InputNum/OutputNewLine function should have parameters";
 
                     }
                 } else {
-                    funcName = AST2IR(children.get(1));
+                    funcName = node.getChild(0).getValue();
                     assert (funcName != null) : "Calling function should have name";
                     if (!(funcName.equals("OutputNum") || funcName.equals("InputNum") || funcName.equals("OutputNewLine")))
-                        generateTAC("CALL", funcName, null);
+                        generateCall(funcName, new ArrayList<>());
                     else {
                         assert (!funcName.equals("OutputNum")) : "Calling OutputNum function should have parameters";
                         if (funcName.equals("InputNum"))
-                            generateTAC("READ", null, null);
-                        else generateTAC("WRITENL", null, null);
+                            generateTAC(TacOp.READ, null, null);
+                        else generateTAC(TacOp.WRITENL, null, null);
 
                     }
                 }
-                return "(" + lineCount + ")";
-            case "factorClosure":
-                if (children.get(2).getChildren().size() > 0) {
-                    if (children.get(2).getChildren().get(0).getSymbol().equals("1")) {
-                        generateTAC("MUL", AST2IR(children.get(1)), AST2IR(children.get(2)));
-                    } else if (children.get(1).getChildren().get(0).getSymbol().equals("2")) {
-                        generateTAC("DIV", AST2IR(children.get(1)), AST2IR(children.get(2)));
+                return pool.temporary(lineCount);
+            case ASTTreeNode.STAT_SEQUENCE:
+                for (int i = 0; i < node.size(); i++) {
+                    AST2IR(node.getChild(i));
+                    if (node.getChild(i).getKind() == ASTTreeNode.FUNC_CALL) {
+                        TACTerm callTerm = terms.get(terms.size() - 1);
+                        assert (callTerm.getDerivedType() == Type.VOID) : "Statement cannot have non-void function " + callTerm.getSrc();
                     }
-                    return "(" + lineCount + ")";
-                } else {
-                    return AST2IR(children.get(1));
-                }
-            case "statement":
-                AST2IR(children.get(0));
-                if (children.get(0).getSymbol().equals("funcCall")) {
-                    TACTerm callTerm = terms.get(terms.size() - 1);
-                    assert (callTerm.getDerivedType() == Type.VOID) : "Statement cannot have non-void function " + callTerm.getSrc();
                 }
                 break;
-            case "expression":
-                if (children.get(1).getChildren().size() > 0) {
-                    if (children.get(1).getChildren().get(0).getSymbol().equals("3")) {
-                        generateTAC("ADD", AST2IR(children.get(0)), AST2IR(children.get(1)));
-                    } else if (children.get(1).getChildren().get(0).getSymbol().equals("4")) {
-                        generateTAC("SUB", AST2IR(children.get(0)), AST2IR(children.get(1)));
-                    }
-                    return "(" + lineCount + ")";
-                } else {
-                    return AST2IR(children.get(0));
-                }
-            case "designator":
-                if (children.get(1).getChildren().size() == 0) {
-                    return AST2IR(children.get(0));
-                } else {
-                    String ident = AST2IR(children.get(0));
-                    Type type = symbolTable.lookupType(ident);
-                    assert (type == Type.ARRAY) : "Indexing VAR type instead of ARRAY type";
-                    List<Integer> lengths = symbolTable.lookupArrayParam(ident);
-                    List<String> designators = new ArrayList<>();
-                    ASTTreeNode designatorClosure = children.get(1);
-                    while (designatorClosure.getChildren().size() > 0) {
-                        designators.add(AST2IR(designatorClosure.getChildren().get(1)));
-                        designatorClosure = designatorClosure.getChildren().get(3);
-                    }
-                    assert (designators.size() == lengths.size()) : "ARRAY Indexing should use the same length as the declaration";
-                    if (designators.size() > 1) {
-                        generateTAC("MUL", designators.get(0), String.valueOf(lengths.get(1)));
-                        generateTAC("ADD", "(" + lineCount + ")", designators.get(1));
-                        for (int i = 1; i < designators.size() - 1; i++) {
-                            generateTAC("MUL", "(" + lineCount + ")", String.valueOf(lengths.get(i + 1)));
-                            generateTAC("ADD", "(" + lineCount + ")", designators.get(i + 1));
+            case ASTTreeNode.ASSIGNMENT:
+                ASTTreeNode target = node.getChild(0);
+                Variable des = target.getKind() == ASTTreeNode.DESIGNATOR ? address(target) : AST2IR(target);
+                Variable res;
+
+                switch (node.getOp()) {
+                    case 40 -> res = AST2IR(node.getChild(1));
+                    case 11, 12, 13, 14 -> {
+                        Variable exp = AST2IR(node.getChild(1));
+                        switch (node.getOp()) {
+                            case 11 -> generateTAC(TacOp.MUL, exp, des);
+                            case 12 -> generateTAC(TacOp.DIV, exp, des);
+                            case 13 -> generateTAC(TacOp.ADD, exp, des);
+                            default -> generateTAC(TacOp.SUB, exp, des);
                         }
-                        generateTAC("MUL", "(" + lineCount + ")", "4");
-                    } else {
-                        generateTAC("MUL", designators.get(0), "4");
+                        res = pool.temporary(lineCount);
                     }
-
-                    generateTAC("ADDA", "(" + lineCount + ")", ident);
-                    return "(" + lineCount + ")";
-                }
-
-            case "assignment":
-                String des = AST2IR(children.get(1));
-                String res;
-                ASTTreeNode sub = children.get(2);
-
-                if (sub.getChildren().get(0).getSymbol().equals("40")) {
-                    res = AST2IR(sub.getChildren().get(1));
-                } else if (sub.getChildren().get(0).getSymbol().equals("shortHandOp")) {
-                    String exp = AST2IR(sub.getChildren().get(1));
-                    String ops = sub.getChildren().get(0).getChildren().get(0).getSymbol();
-                    switch (ops) {
-                        case "11" -> generateTAC("MUL", exp, des);
-                        case "12" -> generateTAC("DIV", exp, des);
-                        case "13" -> generateTAC("ADD", exp, des);
-                        case "14" -> generateTAC("SUB", exp, des);
-                        default -> throw new ErrorMessage("IR Generation", "Proper shorthand operation", "Invalid operation");
+                    case 51 -> {
+                        generateTAC(TacOp.ADD, des, pool.constant(1));
+                        res = pool.temporary(lineCount);
                     }
-                    res = "(" + lineCount + ")";
-                } else {
-                    String ops = sub.getChildren().get(0).getChildren().get(0).getSymbol();
-                    if (ops.equals("51")) {
-                        generateTAC("ADD", des, "1");
-                    } else {
-                        generateTAC("SUB", des, "1");
+                    case 52 -> {
+                        generateTAC(TacOp.SUB, des, pool.constant(1));
+                        res = pool.temporary(lineCount);
                     }
-                    res = "(" + lineCount + ")";
+                    default -> throw new ErrorMessage("IR Generation", "Proper shorthand operation", "Invalid operation");
                 }
 
-                if (des != null && des.charAt(0) == '(') {
-                    generateTAC("STORE", res, des);
+                if (des != null && des.isTemporary()) {
+                    generateTAC(TacOp.STORE, res, des);
                 } else {
-                    generateTAC("MOVE", res, des);
+                    generateTAC(TacOp.MOVE, res, des);
                 }
 
                 break;
-            case "varDecl":
-                String type = AST2IR(children.get(0));
-                List<String> idents = new ArrayList<>();
-                idents.add(AST2IR(children.get(1)));
-                ASTTreeNode identClosure = children.get(2);
-                while (identClosure.getChildren().size() > 0) {
-                    idents.add(AST2IR(identClosure.getChildren().get(1)));
-                    identClosure = identClosure.getChildren().get(2);
+            case ASTTreeNode.VAR_DECL:
+                ASTTreeNode type = node.getChild(0);
+                List<Integer> dimensions = null;
+                if (type.getKind() == ASTTreeNode.ARRAY_TYPE) {
+                    dimensions = new ArrayList<>();
+                    for (int i = 0; i < type.size(); i++) {
+                        dimensions.add(Integer.parseInt(type.getChild(i).getValue()));
+                    }
                 }
-                for (String s : idents) {
+                for (int i = 1; i < node.size(); i++) {
+                    String s = node.getChild(i).getValue();
                     if (symbolTable.getCurrent() == null) {
                         // main block
-                        if (type == null) {
+                        if (dimensions == null) {
                             symbolTable.insertGlobal(s, Type.INT);
                         } else {
-                            Type arr = Type.ARRAY;
-                            symbolTable.insertArrayParams(s, Arrays.stream(type.split(",")).map(Integer::parseInt).collect(Collectors.toList()));
-                            symbolTable.insertGlobal(s, arr);
+                            symbolTable.insertArrayParams(s, new ArrayList<>(dimensions));
+                            symbolTable.insertGlobal(s, Type.ARRAY);
                         }
                     } else {
                         FunctionSymbol current = symbolTable.getCurrent();
-                        if (type == null) {
+                        if (dimensions == null) {
                             current.insertLocal(s, Type.INT);
                         } else {
-                            Type arr = Type.ARRAY;
-                            current.insertArrayParams(s, Arrays.stream(type.split(",")).map(Integer::parseInt).collect(Collectors.toList()));
-                            current.insertLocal(s, arr);
+                            current.insertArrayParams(s, new ArrayList<>(dimensions));
+                            current.insertLocal(s, Type.ARRAY);
                         }
                     }
                 }
                 break;
-            case "typeDecl":
-                if (children.get(0).getSymbol().equals("110")) {
-                    return null;
-                } else {
-                    List<String> numbers = new ArrayList<>();
-                    numbers.add(AST2IR(children.get(2)));
-                    ASTTreeNode numberClosure = children.get(4);
-                    while (numberClosure.getChildren().size() > 0) {
-                        numbers.add(AST2IR(numberClosure.getChildren().get(1)));
-                        numberClosure = numberClosure.getChildren().get(3);
-                    }
-                    return String.join(",", numbers);
-                }
-            case "ifStatement":
-                relation = children.get(1);
-                exp1 = AST2IR(relation.getChildren().get(0));
-                exp2 = AST2IR(relation.getChildren().get(2));
-                generateTAC("CMP", exp1, exp2);
+            case ASTTreeNode.IF:
+                relation = node.getChild(0);
+                exp1 = AST2IR(relation.getChild(0));
+                exp2 = AST2IR(relation.getChild(1));
+                generateTAC(TacOp.CMP, exp1, exp2);
                 // jump to else block, need to fix
                 TACTerm ifTerm = comparison(relation, blocks);
                 CFGBlock ifStatement = this.cfgBlocks.get(this.cfgBlocks.size() - 1);
@@ -854,35 +1033,37 @@ public class IRGenerator {
                 generateConnections(startingBlock, blocks + 1, "then");
                 newBlock();
                 ifStatement.thenBlock = this.cfgBlocks.get(this.cfgBlocks.size() - 1);
-                AST2IR(children.get(3));
+                AST2IR(node.getChild(1));
                 // jump to join block, need to fix
-                TACTerm jumpTerm = generateTAC("BRA", "[" + blocks + "]", null);
+                TACTerm jumpTerm = generateTAC(TacOp.BRA, pool.label(blocks), null);
                 int ifBlock = blocks;
 
                 // else block
                 generateConnections(startingBlock, blocks + 1, "else");
                 newBlock();
                 ifStatement.elseBlock = this.cfgBlocks.get(this.cfgBlocks.size() - 1);
-                ifTerm.setDst(new Variable("[" + blocks + "]", 0));
-                AST2IR(children.get(4));
+                ifTerm.setDst(pool.label(blocks));
+                if (node.size() > 2) {
+                    AST2IR(node.getChild(2));
+                }
                 int elseBlock = blocks;
 
                 generateConnections(ifBlock, blocks + 1, null);
                 generateConnections(elseBlock, blocks + 1, null);
                 newBlock();
                 ifStatement.joinBlock = this.cfgBlocks.get(this.cfgBlocks.size() - 1);
-                jumpTerm.setSrc(new Variable("[" + blocks + "]", 0));
+                jumpTerm.setSrc(pool.label(blocks));
                 break;
-            case "whileStatement":
+            case ASTTreeNode.WHILE:
                 // comparison block
                 if (this.cfgBlocks.get(this.cfgBlocks.size() - 1).getTerms().size() != 0 || this.roots.contains(this.cfgBlocks.get(this.cfgBlocks.size() - 1).getBlockIndex())) {
                     generateConnections(blocks, blocks + 1, null);
                     newBlock();
                 }
-                relation = children.get(1);
-                exp1 = AST2IR(relation.getChildren().get(0));
-                exp2 = AST2IR(relation.getChildren().get(2));
-                generateTAC("CMP", exp1, exp2);
+                relation = node.getChild(0);
+                exp1 = AST2IR(relation.getChild(0));
+                exp2 = AST2IR(relation.getChild(1));
+                generateTAC(TacOp.CMP, exp1, exp2);
                 // jump to else block, need to fix
                 TACTerm whileTerm = comparison(relation, blocks);
 
@@ -893,17 +1074,17 @@ public class IRGenerator {
                 generateConnections(blocks, blocks + 1, "then");
                 newBlock();
                 whileStatement.whileThenBlock = this.cfgBlocks.get(this.cfgBlocks.size() - 1);
-                AST2IR(children.get(3));
-                generateTAC("BRA", "[" + comparisonBlock + "]", null);
+                AST2IR(node.getChild(1));
+                generateTAC(TacOp.BRA, pool.label(comparisonBlock), null);
                 generateConnections(blocks, comparisonBlock, null);
 
                 // comparison block is not more than 1 block, so directly use
                 generateConnections(comparisonBlock, blocks + 1, "else");
                 newBlock();
                 whileStatement.whileElseBlock = this.cfgBlocks.get(this.cfgBlocks.size() - 1);
-                whileTerm.setDst(new Variable("[" + blocks + "]", 0));
+                whileTerm.setDst(pool.label(blocks));
                 break;
-            case "repeatStatement":
+            case ASTTreeNode.REPEAT:
                 // repeat body block
                 if (this.cfgBlocks.get(this.cfgBlocks.size() - 1).getTerms().size() != 0 || this.roots.contains(this.cfgBlocks.get(this.cfgBlocks.size() - 1).getBlockIndex())) {
                     generateConnections(blocks, blocks + 1, null);
@@ -911,15 +1092,15 @@ public class IRGenerator {
                 }
                 int repeatBlock = blocks;
                 CFGBlock repeatStatement = this.cfgBlocks.get(this.cfgBlocks.size() - 1);
-                AST2IR(children.get(1));
+                AST2IR(node.getChild(0));
 
                 generateConnections(blocks, blocks + 1, null);
                 // comparison block is not more than 1 block, so directly use
                 newBlock();
-                relation = children.get(3);
-                exp1 = AST2IR(relation.getChildren().get(0));
-                exp2 = AST2IR(relation.getChildren().get(2));
-                generateTAC("CMP", exp1, exp2);
+                relation = node.getChild(1);
+                exp1 = AST2IR(relation.getChild(0));
+                exp2 = AST2IR(relation.getChild(1));
+                generateTAC(TacOp.CMP, exp1, exp2);
                 comparison(relation, repeatBlock);
                 repeatStatement.repeatCompareBlock = this.cfgBlocks.get(this.cfgBlocks.size() - 1);
 
@@ -928,100 +1109,63 @@ public class IRGenerator {
                 newBlock();
                 repeatStatement.repeatElseBlock = this.cfgBlocks.get(this.cfgBlocks.size() - 1);
                 break;
-            case "returnStatement":
-                if (children.get(1).getChildren().size() > 0) {
+            case ASTTreeNode.RETURN:
+                if (node.size() > 0) {
                     assert (symbolTable.getCurrent() != null) : "Should not return anything in main function";
-                    generateTAC("RET", AST2IR(children.get(1).getChildren().get(0)), null);
+                    generateTAC(TacOp.RET, AST2IR(node.getChild(0)), null);
                 } else {
-                    generateTAC("RET", null, null);
+                    generateTAC(TacOp.RET, null, null);
                 }
                 break;
-            case "funcDecl":
-                String ident;
-                Type functionType;
-                if (children.get(0).getSymbol().equals("63")) {
-                    functionType = Type.VOID;
-                    ident = AST2IR(children.get(2));
-                } else {
-                    functionType = Type.INT;
-                    ident = AST2IR(children.get(1));
-                }
-                String parameters = AST2IR(children.get(children.size() - 3));
-                FunctionSymbol scope = new FunctionSymbol(symbolTable, functionType, ident, parameters == null ? new ArrayList<>() : Arrays.asList(parameters.split(",")), blocks);
-                symbolTable.insertFunctionSymbol(scope);
-                symbolTable.setCurrent(scope);
-                roots.add(blocks);
-                cfgBlocks.get(blocks - 1).setCurrentScope(scope);
-                AST2IR(children.get(children.size() - 2));
-                if (functionType == Type.VOID && scope.getReturnTypes().size() > 0) {
-                    throw new ErrorMessage("Type Checking", "Empty return", "Should not return value in void function " + ident + "(" + parameters + ")");
-                }
-                if (functionType == Type.INT && scope.getReturnTypes().size() == 0) {
-                    throw new ErrorMessage("Type Checking", "Value return", "Function " + ident + "(" + parameters + ")" + " should return value");
-                }
-                if (cfgBlocks.get(cfgBlocks.size() - 1).getTerms().size() == 0 || !terms.get(terms.size() - 1).getOps().equals("RET"))
-                    generateTAC("RET", null, null);
-                exits.add(blocks);
-                newBlock();
+            case ASTTreeNode.FUNC_DECL:
+                lowerFunction(node.getChild(2), declare(node));
                 break;
-            case "formalParam":
-                List<String> params = new ArrayList<>();
-                ASTTreeNode formalParamStatement = children.get(1);
-                if (formalParamStatement.getChildren().size() > 0) {
-                    params.add(AST2IR(formalParamStatement.getChildren().get(0)));
-                    ASTTreeNode paramIdentClosure = formalParamStatement.getChildren().get(1);
-                    while (paramIdentClosure.getChildren().size() > 0) {
-                        params.add(AST2IR(paramIdentClosure.getChildren().get(1)));
-                        paramIdentClosure = paramIdentClosure.getChildren().get(2);
-                    }
-                    return String.join(",", params);
-                } else {
-                    return null;
+            case ASTTreeNode.COMPUTATION:
+                // global declarations and functions, the main statSequence comes last
+                for (int i = 0; i < node.size() - 1; i++) {
+                    AST2IR(node.getChild(i));
                 }
-            case "computation":
-                AST2IR(children.get(1));
-                AST2IR(children.get(2));
                 symbolTable.setCurrent(null);
                 roots.add(blocks);
                 cfgBlocks.get(blocks - 1).setCurrentScope(null);
-                AST2IR(children.get(4));
-                if (cfgBlocks.get(cfgBlocks.size() - 1).getTerms().size() == 0 || !cfgBlocks.get(cfgBlocks.size() - 1).getTerms().get(cfgBlocks.get(cfgBlocks.size() - 1).getTerms().size() - 1).getOps().equals("RET"))
-                    generateTAC("RET", null, null);
+                AST2IR(node.getChild(node.size() - 1));
+                if (cfgBlocks.get(cfgBlocks.size() - 1).getTerms().size() == 0 || cfgBlocks.get(cfgBlocks.size() - 1).getTerms().get(cfgBlocks.get(cfgBlocks.size() - 1).getTerms().size() - 1).getOps() != TacOp.RET)
+                    generateTAC(TacOp.RET, null, null);
                 exits.add(blocks);
                 break;
             default:
-                for (ASTTreeNode child : children) {
-                    AST2IR(child);
+                for (int i = 0; i < node.size(); i++) {
+                    AST2IR(node.getChild(i));
                 }
         }
         return null;
     }
 
     private TACTerm comparison(ASTTreeNode relation, int b) throws ErrorMessage {
-        switch (relation.getChildren().get(1).getChildren().get(0).getSymbol()) {
-            case "20" -> {
+        switch (relation.getOp()) {
+            case 20 -> {
                 // ==
-                return generateTAC("BNE", "(" + lineCount + ")", "[" + b + "]");
+                return generateTAC(TacOp.BNE, pool.temporary(lineCount), pool.label(b));
             }
-            case "21" -> {
+            case 21 -> {
                 // !=
-                return generateTAC("BEQ", "(" + lineCount + ")", "[" + b + "]");
+                return generateTAC(TacOp.BEQ, pool.temporary(lineCount), pool.label(b));
             }
-            case "22" -> {
+            case 22 -> {
                 // <
-                return generateTAC("BGE", "(" + lineCount + ")", "[" + b + "]");
+                return generateTAC(TacOp.BGE, pool.temporary(lineCount), pool.label(b));
             }
-            case "23" -> {
+            case 23 -> {
                 // >=
-                return generateTAC("BLT", "(" + lineCount + ")", "[" + b + "]");
+                return generateTAC(TacOp.BLT, pool.temporary(lineCount), pool.label(b));
             }
-            case "24" -> {
+            case 24 -> {
                 // <=
-                return generateTAC("BGT", "(" + lineCount + ")", "[" + b + "]");
+                return generateTAC(TacOp.BGT, pool.temporary(lineCount), pool.label(b));
             }
             default -> {
                 // >
-                return generateTAC("BLE", "(" + lineCount + ")", "[" + b + "]");
+                return generateTAC(TacOp.BLE, pool.temporary(lineCount), pool.label(b));
             }
         }
     }
@@ -1,69 +1,304 @@
 import java.io.IOException;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 import static parser.EBNFUtil.*;
 
 import error.ErrorMessage;
+import parser.ASTBuilder;
 import parser.ASTTreeNode;
+import parser.ParseTable;
 import parser.Production;
+import scanner.RegexUtil;
 
 public class Parser {
 
+    public interface DeclarationListener {
+        void declaration(ASTTreeNode node) throws ErrorMessage;
+    }
+
+    private static final int FUNC_DECL = encode("funcDecl");
+    private static final int VAR_DECL = encode("varDecl");
+    private static final int COMPUTATION = encode("computation");
+
+    private static ParseTable table;
     private int scannerSym;
-    private final Scanner scanner;
-    private final Stack<ASTTreeNode> stack;
-    private final ASTTreeNode root;
+    private final TokenStream tokens;
+    private int position; // index of the current token in 'tokens'
+    private final int limit; // index of the token read as EOF
+    private final int goal;
+    // parse stack of symbol codes, REDUCE marks the end of reductions[i]
+    private static final int REDUCE = -1;
+    private int[] symbols;
+    private Production[] reductions;
+    private int top;
+    private final ASTBuilder builder;
+    private DeclarationListener listener;
+    private int functions; // funcDecl expanded but not yet reduced
+    private int[] skipped = new int[0]; // token ranges of funcDecls parsed by other parsers
+    private int nextSkipped;
+    private final List<String> errors = new ArrayList<>();
+    private final List<Integer> errorPositions = new ArrayList<>(); // token index of each error
+    private boolean keepErrors; // parseAll leaves the errors to syntaxErrors
+    private boolean recovering; // an error was reported and no terminal matched since
+
+    private void Next() {
+        if (position < limit) {
+            position++;
+        }
+        scannerSym = position == limit ? 255 : tokens.getKind(position);
+    } // advance to the next token, the stream ends with EOF
+
+    private void push(int symbol, Production reduction) {
+        if (top == symbols.length) {
+            symbols = Arrays.copyOf(symbols, top * 2);
+            reductions = Arrays.copyOf(reductions, top * 2);
+        }
+        symbols[top] = symbol;
+        reductions[top++] = reduction;
+    }
 
-    private void Next() throws IOException, ErrorMessage {
-        scannerSym = scanner.getSym();
-    } // advance to the next token
+    // errors following one another without a matched terminal in between are reported as one
+    private void error(String message) {
+        if (!recovering) {
+            errors.add("line " + tokens.getLine(position) + ": " + message);
+            errorPositions.add(position);
+            recovering = true;
+        }
+    }
+
+    private String found() {
+        return scannerSym == 255 ? "end of input" : "\"" + tokens.getText(position) + "\"";
+    }
 
-    public boolean Derivation() throws IOException, ErrorMessage {
-        ASTTreeNode node = stack.pop();
-        String symbol = node.getSymbol();
+    private static String terminal(int sym) {
+        return switch (sym) {
+            case 60 -> "number";
+            case 61 -> "identifier";
+            case 255 -> "end of input";
+            default -> "\"" + RegexUtil.id2regex.get(sym).replace("\\", "") + "\"";
+        };
+    }
+
+    /**
+     * One step of the derivation. Syntax errors are recovered in panic mode: a missing terminal
+     * is assumed to be there, and a nonterminal without a production for the lookahead drops
+     * tokens until one it can start with (then it is derived) or one in its FOLLOW set (then it
+     * is given up). Every step pops a symbol or drops a token, so recovery stays linear. The
+     * tree is not built past the first error, and all errors are thrown together at the end.
+     */
+    public boolean Derivation() throws ErrorMessage {
+        int sym = symbols[--top];
+        Production reduction = reductions[top];
+        reductions[top] = null;
 
-        if (isNumeric(symbol)) {
-            node.setValue(scanner.getLastValue());
-            int sym = Integer.parseInt(symbol);
+        if (sym == REDUCE) {
+            int left = reduction.getLeftSymbol();
+            if (left == FUNC_DECL) {
+                functions--;
+            }
+            if (errors.isEmpty()) {
+                builder.reduce(reduction);
+                if (listener != null && (left == FUNC_DECL || left == VAR_DECL && functions == 0)) {
+                    listener.declaration(builder.release());
+                }
+            }
+        } else if (sym < NONTERMINAL_BASE) {
             if (scannerSym != sym) {
-                throw new ErrorMessage("Parsing", "Valid number input", "Error occurred in parser derivation about numbers");
+                error("expected " + terminal(sym) + " but found " + found());
+                if (sym != 255 || resume()) {
+                    return true;
+                }
             }
             if (sym == 255) {
+                if (!errors.isEmpty() && !keepErrors) {
+                    throw syntaxErrors(List.of(this));
+                }
                 return false;
             }
-
+            if (errors.isEmpty()) {
+                builder.shift(position);
+            }
+            recovering = false;
             Next();
+        } else if (sym == FUNC_DECL && nextSkipped < skipped.length && position == skipped[nextSkipped]) {
+            builder.skip();
+            position = skipped[nextSkipped + 1];
+            scannerSym = tokens.getKind(position);
+            nextSkipped += 2;
         } else {
-            Production prod = LLTable[nonTerminalMap.get(symbol)][scannerSym];
+            int nonTerminal = sym - NONTERMINAL_BASE;
+            Production prod = table.get(nonTerminal, scannerSym);
             if (prod == null) {
-                throw new ErrorMessage("Parsing", "Valid grammar input", "Input is not accorded to valid grammar");
+                error("unexpected " + found() + " in " + table.getName(nonTerminal));
+                while (scannerSym != 255 && table.get(nonTerminal, scannerSym) == null && !table.isFollow(nonTerminal, scannerSym)) {
+                    Next();
+                }
+                prod = table.get(nonTerminal, scannerSym);
+                if (prod == null) {
+                    return true;
+                }
             }
 
-            String[] right = prod.getRight().split(" ");
-            if (right[0].compareTo("~") != 0) {
-                for (int i = right.length - 1; i >= 0; i--) {
-                    ASTTreeNode children = new ASTTreeNode(right[i], null);
-                    stack.push(children);
-                    node.addChild(children);
-                }
-                node.reverse();
+            if (sym == FUNC_DECL) {
+                functions++;
+            }
+            int[] right = prod.getSymbols();
+            push(REDUCE, prod);
+            for (int i = right.length - 1; i >= 0; i--) {
+                push(right[i], null);
             }
         }
         return true;
     }
 
 
+    /**
+     * The program ended before the input did, likely at a stray "}". Drop tokens up to one that
+     * starts declarations or statements and check the rest as that part of the computation, so
+     * that the errors after it are reported too. Returns false once only EOF is left.
+     */
+    private boolean resume() {
+        if (goal != COMPUTATION) {
+            return false;
+        }
+        int[] right = table.get(COMPUTATION - NONTERMINAL_BASE, table.getFirst(COMPUTATION - NONTERMINAL_BASE)[0]).getSymbols();
+        while (scannerSym != 255) {
+            // the first of varDeclClosure, funcDeclClosure and statSequence that can start here
+            for (int i = 1; i < right.length; i++) {
+                if (right[i] >= NONTERMINAL_BASE && table.get(right[i] - NONTERMINAL_BASE, scannerSym) != null) {
+                    push(255, null);
+                    for (int j = right.length - 1; j >= i; j--) {
+                        push(right[j], null);
+                    }
+                    return true;
+                }
+            }
+            Next();
+        }
+        return false;
+    }
+
+    /**
+     * Derives the rest of the input like calling Derivation until it returns false, but keeps the
+     * syntax errors, so that parsers of parts of one token stream report them together through
+     * syntaxErrors. What a declaration listener throws is still thrown.
+     */
+    public void parseAll() throws ErrorMessage {
+        keepErrors = true;
+        while (Derivation()) ;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    // the syntax errors of parsers of disjoint parts of one token stream, in input order
+    public static ErrorMessage syntaxErrors(List<Parser> parsers) {
+        List<int[]> order = new ArrayList<>(); // parser, error
+        for (int i = 0; i < parsers.size(); i++) {
+            for (int j = 0; j < parsers.get(i).errors.size(); j++) {
+                order.add(new int[]{i, j});
+            }
+        }
+        order.sort(Comparator.comparingInt(e -> parsers.get(e[0]).errorPositions.get(e[1])));
+        List<String> errors = new ArrayList<>();
+        for (int[] e : order) {
+            errors.add(parsers.get(e[0]).errors.get(e[1]));
+        }
+        return new ErrorMessage("Parsing", "Valid grammar input", errors.size() + " syntax error(s), " + String.join("; ", errors));
+    }
+
     public Parser(String fileName) throws IOException, ErrorMessage {
-        scanner = new Scanner(fileName);
-        stack = new Stack<>();
-        root = new ASTTreeNode("computation", null);
-        stack.push(new ASTTreeNode("255", null));
-        stack.push(root);
-        Next();
+        this(new TokenStream(fileName));
+    }
+
+    public Parser(TokenStream tokens) throws ErrorMessage {
+        this(tokens, 0, tokens.size() - 1, COMPUTATION);
+    }
+
+    // parse the single funcDecl in tokens [from, to), the token at 'to' is read as EOF
+    public Parser(TokenStream tokens, int from, int to) throws ErrorMessage {
+        this(tokens, from, to, FUNC_DECL);
+    }
+
+    private Parser(TokenStream tokens, int from, int limit, int goal) throws ErrorMessage {
+        loadTable();
+        this.tokens = tokens;
+        this.limit = limit;
+        this.goal = goal;
+        symbols = new int[64];
+        reductions = new Production[64];
+        top = 0;
+        builder = new ASTBuilder(tokens::getText);
+        push(255, null);
+        push(goal, null);
+        position = from;
+        scannerSym = position == limit ? 255 : tokens.getKind(position);
+    }
+
+    /**
+     * Token ranges [start, end) of the funcDecls of a computation, as pairs in one array.
+     * Only keywords and braces are looked at: a funcDecl starts with "void" or "function"
+     * outside of any braces and ends with the ";" after its body's closing brace. Returns
+     * an empty array when the layout does not look like that, the grammar will tell why.
+     */
+    public static int[] splitFunctions(TokenStream tokens) {
+        int[] ranges = new int[16];
+        int count = 0;
+        int i = 0;
+        while (i < tokens.size() && tokens.getKind(i) != 150) {
+            int kind = tokens.getKind(i);
+            if (kind != 63 && kind != 112) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < tokens.size() && tokens.getKind(i) != 150) {
+                i++;
+            }
+            int depth = 0;
+            for (; i < tokens.size(); i++) {
+                if (tokens.getKind(i) == 150) {
+                    depth++;
+                } else if (tokens.getKind(i) == 80 && --depth == 0) {
+                    break;
+                }
+            }
+            if (i + 1 >= tokens.size() || tokens.getKind(i + 1) != 70) {
+                return new int[0];
+            }
+            i += 2;
+            if (count == ranges.length) {
+                ranges = Arrays.copyOf(ranges, count * 2);
+            }
+            ranges[count++] = start;
+            ranges[count++] = i;
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    // leave the funcDecls in ranges (from splitFunctions) to other parsers, they are left out of the tree
+    public void skipFunctions(int[] ranges) {
+        this.skipped = ranges;
+        this.nextSkipped = 0;
+    }
+
+    private static synchronized void loadTable() throws ErrorMessage {
+        if (table == null) {
+            table = ParseTable.load();
+        }
+    }
+
+    // receive global varDecl and funcDecl nodes as soon as they are parsed, they are left out of the tree
+    public void setDeclarationListener(DeclarationListener listener) {
+        this.listener = listener;
     }
 
     public ASTTreeNode getRoot() {
-        return root;
+        return builder.getRoot();
     }
 
 
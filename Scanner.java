@@ -1,93 +1,141 @@
 import java.io.IOException;
-import java.util.*;
 
 import error.ErrorMessage;
 import scanner.DFA;
-import scanner.Regex2NFA;
+import scanner.KeywordTable;
+import scanner.LexerTable;
 import scanner.RegexUtil;
 
 public class Scanner {
-    /*moved up from FileReader*/
 
-    private final FileReader reader;
-    private Character inputSym; // the current character on the input
-    private final StringBuilder substring;
-    private static Map<String, DFA> matcher;
-    private int lastToken = -1;
-    private String lastValue;
+    private final CharSource source;
+    private int cursor; // the next character on the input
+    private static DFA lexer;
+    private static KeywordTable keywords;
+    private int tokenStart;
+    private int tokenEnd;
+    private int line; // line of the next character, counted from 1
+    private int tokenLine;
+    private int scanEnd; // characters read by the automaton for the last token, the lookahead included
 
-    private void Next() throws IOException {
-        inputSym = reader.getSym();
-    } // advance to the next character
+    private boolean isWhitespace(char c) {
+        return c == '\t' || c == ' ' || c == '\n' || c == '\r';
+    }
 
     // Error == 0, EOF == 255
-    /* symmetrical to the changed FileReader class */
-    public int getSym() throws IOException, ErrorMessage {
-        if (substring.length() == 0) {
-            lastToken = -1;
-        }
-
-        if (inputSym == null) {
-            lastToken = 255;
-            substring.setLength(0);
-        }
-
-        while (inputSym != null) {
-            if (!RegexUtil.alphabet.contains(inputSym)) {
-                throw new ErrorMessage("Lexical Analysis", "Valid character", "Input character " + inputSym + " not in alphabet!");
+    public int getSym() throws ErrorMessage {
+        int length = source.length();
+        while (true) {
+            // maximal munch: run the combined automaton until it dies, then fall back to the last accepting prefix
+            int state = 0;
+            int position = cursor;
+            int token = -1;
+            int end = cursor;
+            while (position < length) {
+                char c = source.charAt(position);
+                if (!RegexUtil.inAlphabet(c)) {
+                    throw new ErrorMessage("Lexical Analysis", "Valid character", "Input character " + c + " not in alphabet!");
+                }
+                state = lexer.step(state, c);
+                if (state == -1) {
+                    break;
+                }
+                position++;
+                if (lexer.isAccept(state)) {
+                    token = lexer.getToken(state);
+                    end = position;
+                }
             }
-            substring.append(inputSym);
-            int localToken = -1;
-            boolean match = false;
-            for (String reg : matcher.keySet()) {
-                boolean result = matcher.get(reg).search(substring.toString());
-                match |= result;
-                if (result) {
-                    if (localToken == -1 || localToken == 61) {
-                        localToken = RegexUtil.regex2id.get(reg);
+
+            if (token == -1) {
+                if (cursor == length) {
+                    tokenLine = line;
+                    return 255;
+                }
+                if (isWhitespace(source.charAt(cursor))) {
+                    if (source.charAt(cursor) == '\n') {
+                        line++;
                     }
+                    cursor++;
+                    continue;
                 }
+                throw new ErrorMessage("Lexical Analysis", "Valid token", "Unrecognized input " + source.text(cursor, Math.max(position, cursor + 1)));
             }
 
-            if (lastToken == 254) { // comment
-                while (inputSym != null && inputSym != '\n') {
-                    Next();
+            if (token == 61) {
+                int keyword = keywords.lookup(source, cursor, end);
+                if (keyword != -1) {
+                    token = keyword;
                 }
-                Next();
-                substring.setLength(0);
-                return getSym();
             }
 
-            if (match) {
-                Next();
-                lastToken = localToken;
-                lastValue = substring.toString();
-            } else if (lastToken != -1) {
-                substring.setLength(0);
-                return lastToken;
-            } else if (substring.length() == 1 && (inputSym == '\t' || inputSym == ' ' || inputSym == '\n' || inputSym == '\r')) {
-                Next();
-                substring.setLength(0);
-                return getSym();
-            } else {
-                Next();
+            if (token == 254) { // comment
+                cursor = end;
+                while (cursor < length && source.charAt(cursor) != '\n') {
+                    cursor++;
+                }
+                if (cursor < length) {
+                    cursor++;
+                    line++;
+                }
+                continue;
             }
+
+            tokenStart = cursor;
+            tokenEnd = end;
+            tokenLine = line;
+            scanEnd = Math.min(position + 1, length);
+            cursor = end;
+            return token;
         }
-        return lastToken;
     } // return current and advance to the next token on the input
 
     public String getLastValue() {
-        return lastValue;
+        return source.text(tokenStart, tokenEnd);
     }
 
-    public Scanner(String fileName) throws IOException, ErrorMessage {
-        reader = new FileReader(fileName);
-        substring = new StringBuilder();
-        matcher = new HashMap<>();
-        for (String reg : RegexUtil.regex2id.keySet()) {
-            matcher.put(reg, Regex2NFA.regex2NFA(reg).NFA2DFA());
-        }
+    public int getTokenStart() {
+        return tokenStart;
+    }
 
-        Next();
+    public int getTokenEnd() {
+        return tokenEnd;
+    }
+
+    public int getTokenLine() {
+        return tokenLine;
+    }
+
+    public int getScanEnd() {
+        return scanEnd;
+    }
+
+    // continue scanning at a token boundary of the source
+    public void seek(int offset, int line) {
+        this.cursor = offset;
+        this.line = line;
+    }
+
+    public CharSource getSource() {
+        return source;
+    }
+
+    public Scanner(String fileName) throws IOException, ErrorMessage {
+        this(new CharSource(fileName));
     } // constructor: open file and scan the first token into 'sym'
-}
\ No newline at end of file
+
+    public Scanner(CharSource source) throws ErrorMessage {
+        this.source = source;
+        cursor = 0;
+        line = 1;
+        loadTables();
+    }
+
+    // scanners may be created on several threads at once
+    private static synchronized void loadTables() throws ErrorMessage {
+        if (lexer == null) {
+            keywords = LexerTable.keywords();
+            lexer = LexerTable.load();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import error.ErrorMessage;
+import scanner.KeywordTable;
+import scanner.LexerTable;
+import scanner.RegexUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class TestKeywordTable {
+    public static void main(String args[]) {
+        try {
+            KeywordTable table = LexerTable.keywords();
+            List<String> failures = new ArrayList<>();
+            for (Map.Entry<Integer, String> entry : RegexUtil.id2keyword.entrySet()) {
+                String word = entry.getValue();
+                // every keyword has a slot of its own
+                if (table.lookup(word, 0, word.length()) != entry.getKey()) {
+                    failures.add(word);
+                }
+                // identifiers landing in a keyword's slot still fall back to 61
+                List<String> identifiers = new ArrayList<>();
+                for (int i = 1; i < word.length(); i++) {
+                    identifiers.add(word.substring(0, i));
+                    identifiers.add(word.substring(i));
+                }
+                identifiers.add(word + "x");
+                identifiers.add("x" + word);
+                identifiers.add(word + "1");
+                identifiers.add(word.toUpperCase());
+                for (String identifier : identifiers) {
+                    if (!RegexUtil.id2keyword.containsValue(identifier) && identifierToken(identifier) != 61) {
+                        failures.add(identifier);
+                    }
+                }
+            }
+            System.out.println("keywordTable: " + (failures.isEmpty() ? "perfect" : "FAILED, " + failures));
+        } catch (ErrorMessage e) {
+            System.err.println(e);
+        }
+    }
+
+    // token the scanner returns for the text, with the keyword table applied
+    private static int identifierToken(String text) throws ErrorMessage {
+        Scanner scanner = new Scanner(new CharSource(text.toCharArray()));
+        int token = scanner.getSym();
+        return scanner.getTokenEnd() == text.length() ? token : -1;
+    }
+}
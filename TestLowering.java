@@ -0,0 +1,33 @@
+import error.ErrorMessage;
+
+import java.io.IOException;
+
+public class TestLowering {
+    public static void main(String args[]) {
+        try {
+            // five functions are lowered in parallel, f2's body starts with a multiplication divided so it is lowered in place
+            new IRGenerator(new String[]{"./resources/functions", "SSA"}, false);
+            System.out.println("functions: lowered");
+
+            // f4 adds an array, the type error names the IR line of lowering in source order (type checks need -ea)
+            try {
+                new IRGenerator(new String[]{"./resources/typeError", "SSA"}, false);
+                System.out.println("typeError: FAILED, no type error");
+            } catch (AssertionError e) {
+                System.out.println("typeError: " + (e.getMessage().endsWith("at IR line 7") ? "reported" : "FAILED, " + e.getMessage()));
+            }
+
+            // the functions are parsed on their own, their syntax errors come in order with main's
+            try {
+                new IRGenerator(new String[]{"./resources/functionErrors", "SSA"}, false);
+                System.out.println("functionErrors: FAILED, no syntax error");
+            } catch (ErrorMessage e) {
+                String expected = "3 syntax error(s), line 3: unexpected \"}\" in term; line 5: unexpected \";\" in factor; "
+                        + "line 9: unexpected \";\" in expression";
+                System.out.println("functionErrors: " + (e.getMessage().endsWith(expected) ? "reported" : "FAILED, " + e.getMessage()));
+            }
+        } catch (IOException | ErrorMessage e) {
+            System.err.println(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import error.ErrorMessage;
+
+import java.io.IOException;
+import java.util.Random;
+
+public class TestRelex {
+    // pieces that make tokens merge, split, or turn into and out of comments
+    private static final String[] PIECES = {"", " ", "\n", "//", "/", "a", "i1", "7", "<", "=", "-", ":=", "let", "x ", "(", ";"};
+
+    public static void main(String args[]) {
+        try {
+            Random random = new Random(9);
+            String text = new CharSource("./resources/code").toString();
+            TokenStream tokens = new TokenStream(new Scanner(new CharSource(text.toCharArray())));
+            int edits = 0;
+            for (int round = 0; round < 2000; round++) {
+                int editStart = random.nextInt(text.length() + 1);
+                int removed = Math.min(random.nextInt(4), text.length() - editStart);
+                String piece = PIECES[random.nextInt(PIECES.length)];
+                String updated = text.substring(0, editStart) + piece + text.substring(editStart + removed);
+                CharSource source = new CharSource(updated.toCharArray());
+
+                TokenStream expected;
+                try {
+                    expected = new TokenStream(new Scanner(source));
+                } catch (ErrorMessage e) {
+                    continue; // an edit the scanner rejects is not applied
+                }
+                TokenStream.Patch patch = tokens.relex(source, editStart, removed, piece.length());
+                String failure = compare(tokens, patch, expected, piece.length() - removed);
+                if (failure != null) {
+                    System.out.println("relex: FAILED, edit " + round + " at " + editStart + ": " + failure);
+                    return;
+                }
+                text = updated;
+                tokens = patch.getTokens();
+                edits++;
+            }
+            System.out.println("relex: patched " + edits + " edits");
+        } catch (IOException | ErrorMessage e) {
+            System.err.println(e);
+        }
+    }
+
+    private static String compare(TokenStream old, TokenStream.Patch patch, TokenStream expected, int delta) {
+        TokenStream patched = patch.getTokens();
+        if (patched.size() != expected.size()) {
+            return "size " + patched.size() + " instead of " + expected.size();
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (!same(patched, i, expected, i)) {
+                return "token " + i + " differs from a fresh scan";
+            }
+        }
+        // outside the patch range the tokens are the old ones, only moved
+        for (int i = 0; i < patch.getFrom(); i++) {
+            if (!same(old, i, patched, i)) {
+                return "token " + i + " before the patch range changed";
+            }
+        }
+        if (old.size() - patch.getOldTo() != patched.size() - patch.getNewTo()) {
+            return "patch range [" + patch.getFrom() + ", " + patch.getOldTo() + ") -> [" + patch.getFrom() + ", " + patch.getNewTo() + ") does not line up";
+        }
+        for (int i = patch.getOldTo(); i < old.size(); i++) {
+            int j = i - patch.getOldTo() + patch.getNewTo();
+            if (old.getKind(i) != patched.getKind(j) || old.getStart(i) + delta != patched.getStart(j) || old.getLength(i) != patched.getLength(j)) {
+                return "token " + i + " behind the patch range changed";
+            }
+        }
+        return null;
+    }
+
+    private static boolean same(TokenStream a, int i, TokenStream b, int j) {
+        return a.getKind(i) == b.getKind(j) && a.getStart(i) == b.getStart(j)
+                && a.getLength(i) == b.getLength(j) && a.getLine(i) == b.getLine(j);
+    }
+}
@@ -0,0 +1,77 @@
+import error.ErrorMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TestScanParallel {
+    // short lines of these put chunk cuts next to comments, multi-character operators and identifiers
+    private static final String[] PIECES = {" ", "//", "// x := 1", "/", "<", "<=", "<-", "=", "==", "!=", ">=", ":=",
+            "-", "a", "ab", "i1", "7", "42", "let", "then", "(", ")", ";", "\n", "\r\n", "\t"};
+    private static final int[] CHUNK_SIZES = {1, 7, 64, 1000, 1 << 16};
+
+    public static void main(String args[]) {
+        try {
+            List<String> texts = new ArrayList<>();
+            texts.add(new CharSource("./resources/code").toString());
+            texts.add("main var a; {\n let a := 1 // comment without a newline");
+            texts.add("main var a; {\n let a := 1;\n call OutputNum(a)\n}.\nidentifierAtEndOfFile");
+            texts.add("main var a; {\n let a <= 1 $ 2;\n}.\n"); // a lexical error
+            Random random = new Random(10);
+            for (int i = 0; i < 200; i++) {
+                StringBuilder text = new StringBuilder();
+                int pieces = random.nextInt(200);
+                for (int j = 0; j < pieces; j++) {
+                    text.append(PIECES[random.nextInt(PIECES.length)]);
+                }
+                texts.add(text.toString());
+            }
+
+            for (int i = 0; i < texts.size(); i++) {
+                String failure = compare(new CharSource(texts.get(i).toCharArray()));
+                if (failure != null) {
+                    System.out.println("scanParallel: FAILED, text " + i + ": " + failure);
+                    return;
+                }
+            }
+            System.out.println("scanParallel: same as sequential on " + texts.size() + " texts");
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
+
+    private static String compare(CharSource source) {
+        TokenStream expected = null;
+        String expectedError = null;
+        try {
+            expected = new TokenStream(new Scanner(source));
+        } catch (ErrorMessage e) {
+            expectedError = e.getMessage();
+        }
+        for (int chunkSize : CHUNK_SIZES) {
+            TokenStream tokens;
+            try {
+                tokens = TokenStream.scanParallel(source, chunkSize);
+            } catch (ErrorMessage e) {
+                if (!e.getMessage().equals(expectedError)) {
+                    return "chunk size " + chunkSize + " reported " + e.getMessage();
+                }
+                continue;
+            }
+            if (expected == null) {
+                return "chunk size " + chunkSize + " missed " + expectedError;
+            }
+            if (tokens.size() != expected.size()) {
+                return "chunk size " + chunkSize + " gave " + tokens.size() + " tokens instead of " + expected.size();
+            }
+            for (int i = 0; i < expected.size(); i++) {
+                if (tokens.getKind(i) != expected.getKind(i) || tokens.getStart(i) != expected.getStart(i)
+                        || tokens.getLength(i) != expected.getLength(i) || tokens.getLine(i) != expected.getLine(i)) {
+                    return "chunk size " + chunkSize + " differs at token " + i;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+import error.ErrorMessage;
+
+import java.io.IOException;
+
+public class TestSyntaxErrors {
+    public static void main(String args[]) {
+        try {
+            // main's body is closed early by the "}" on line 9, the errors after it are reported too
+            Parser parser = new Parser("./resources/syntaxErrors");
+            while (parser.Derivation()) {}
+            System.out.println("syntaxErrors: FAILED, no syntax error");
+        } catch (ErrorMessage e) {
+            String expected = "4 syntax error(s), line 9: expected \".\" but found \";\"; line 10: unexpected \";\" in term; "
+                    + "line 15: unexpected \";\" in factor; line 16: unexpected \":=\" in designator";
+            System.out.println("syntaxErrors: " + (e.getMessage().endsWith(expected) ? "reported" : "FAILED, " + e.getMessage()));
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
+}
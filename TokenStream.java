@@ -0,0 +1,363 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import error.ErrorMessage;
+
+/**
+ * Whole-file token stream packed into parallel int arrays, ending with EOF (255).
+ * Token text stays in the source buffer until getText asks for it, so a stream
+ * can be kept and shared by later phases without holding any strings.
+ */
+public class TokenStream {
+
+    private final CharSource source;
+    private int[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int size;
+
+    /**
+     * Result of relex: tokens [from, oldTo) of the previous stream were replaced
+     * by tokens [from, newTo) of the patched one, everything else only moved.
+     */
+    public static class Patch {
+        private final TokenStream tokens;
+        private final int from;
+        private final int oldTo;
+        private final int newTo;
+
+        private Patch(TokenStream tokens, int from, int oldTo, int newTo) {
+            this.tokens = tokens;
+            this.from = from;
+            this.oldTo = oldTo;
+            this.newTo = newTo;
+        }
+
+        public TokenStream getTokens() {
+            return tokens;
+        }
+
+        public int getFrom() {
+            return from;
+        }
+
+        public int getOldTo() {
+            return oldTo;
+        }
+
+        public int getNewTo() {
+            return newTo;
+        }
+    }
+
+    // speculative scan of [start, end), lines are counted from 1 at start
+    private static class Chunk {
+        private final int start;
+        private final int end;
+        private TokenStream tokens;
+        private boolean eof;
+        private int resume; // start of the first token at or behind end
+        private int newlines;
+        private ErrorMessage error;
+
+        private Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private Chunk scan(CharSource source) {
+            newlines = newlines(source, start, end);
+            tokens = new TokenStream(source, Math.max(16, (end - start) / 4));
+            try {
+                Scanner scanner = new Scanner(source);
+                scanner.seek(start, 1);
+                while (true) {
+                    int token = tokens.scan(scanner);
+                    if (token == 255) {
+                        eof = true;
+                        break;
+                    }
+                    if (tokens.starts[tokens.size - 1] >= end) {
+                        resume = tokens.starts[--tokens.size];
+                        break;
+                    }
+                }
+            } catch (ErrorMessage e) {
+                error = e; // only reported if the sequential scan gets here too
+                tokens.size = 0;
+            }
+            return this;
+        }
+    }
+
+    private void add(int kind, int start, int length, int line) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        kinds[size] = kind;
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size++] = line;
+    }
+
+    private void append(TokenStream tokens, int from, int lineDelta) {
+        int count = tokens.size - from;
+        if (size + count > kinds.length) {
+            int capacity = Math.max(size * 2, size + count);
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        System.arraycopy(tokens.kinds, from, kinds, size, count);
+        System.arraycopy(tokens.starts, from, starts, size, count);
+        System.arraycopy(tokens.lengths, from, lengths, size, count);
+        for (int i = 0; i < count; i++) {
+            lines[size + i] = tokens.lines[from + i] + lineDelta;
+        }
+        size += count;
+    }
+
+    private int scan(Scanner scanner) throws ErrorMessage {
+        int token = scanner.getSym();
+        if (token == 255) {
+            add(token, source.length(), 0, scanner.getTokenLine());
+        } else {
+            add(token, scanner.getTokenStart(), scanner.getTokenEnd() - scanner.getTokenStart(), scanner.getTokenLine());
+        }
+        return token;
+    } // append the next token of the scanner
+
+    public int size() {
+        return size;
+    }
+
+    public int getKind(int index) {
+        return kinds[index];
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    public String getText(int index) {
+        return source.text(starts[index], starts[index] + lengths[index]);
+    }
+
+    public CharSource getSource() {
+        return source;
+    }
+
+    private static int newlines(CharSource source, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (source.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Re-lex after the characters [editStart, editStart + removed) of this stream's source
+     * were replaced by [editStart, editStart + inserted) of updated. Scanning restarts at the
+     * last token boundary whose earlier tokens never looked at the edit, and stops as soon as
+     * a token starts where a token of the old stream started behind the edit.
+     */
+    public Patch relex(CharSource updated, int editStart, int removed, int inserted) throws ErrorMessage {
+        int delta = inserted - removed;
+        int editEnd = editStart + inserted;
+
+        // last token starting before the edit, stepping back while its predecessor's lookahead reaches the edit
+        int from = 0;
+        while (from + 1 < size && starts[from + 1] < editStart) {
+            from++;
+        }
+        if (from < size && starts[from] >= editStart) {
+            from = 0;
+        }
+        Scanner probe = new Scanner(source);
+        while (from > 0) {
+            probe.seek(starts[from - 1], lines[from - 1]);
+            probe.getSym();
+            if (probe.getScanEnd() <= editStart) {
+                break;
+            }
+            from--;
+        }
+
+        TokenStream patched = new TokenStream(updated, size + Math.max(16, inserted / 4));
+        System.arraycopy(kinds, 0, patched.kinds, 0, from);
+        System.arraycopy(starts, 0, patched.starts, 0, from);
+        System.arraycopy(lengths, 0, patched.lengths, 0, from);
+        System.arraycopy(lines, 0, patched.lines, 0, from);
+        patched.size = from;
+
+        Scanner scanner = new Scanner(updated);
+        if (from > 0) {
+            scanner.seek(starts[from], lines[from]);
+        }
+        int oldTo = from;
+        while (true) {
+            patched.scan(scanner);
+            int last = patched.size - 1;
+            int start = patched.starts[last];
+            if (start < editEnd) {
+                continue;
+            }
+            // the scanner keeps no state besides its position, so meeting an old token start means resynchronized
+            while (oldTo < size && starts[oldTo] < start - delta) {
+                oldTo++;
+            }
+            if (oldTo < size && starts[oldTo] == start - delta) {
+                patched.size = last;
+                break;
+            }
+        }
+
+        int newTo = patched.size;
+        int lineDelta = newlines(updated, editStart, editEnd) - newlines(source, editStart, editStart + removed);
+        for (int i = oldTo; i < size; i++) {
+            patched.add(kinds[i], starts[i] + delta, lengths[i], lines[i] + lineDelta);
+        }
+        return new Patch(patched, from, oldTo, newTo);
+    }
+
+    public static TokenStream scanParallel(CharSource source) throws ErrorMessage {
+        return scanParallel(source, 1 << 16);
+    }
+
+    /**
+     * Scan chunks of about chunkSize characters on the common ForkJoinPool and stitch
+     * them into the stream the sequential scanner would produce. Chunks are cut after
+     * a newline; no token contains one and a comment ends at the first one, so a chunk
+     * normally continues exactly where the previous one stopped. Where it does not (a
+     * token or comment running over the cut, or a lexical error) the stitching scans
+     * sequentially from the previous chunk's end until it meets one of the chunk's tokens.
+     */
+    public static TokenStream scanParallel(CharSource source, int chunkSize) throws ErrorMessage {
+        List<Chunk> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < source.length()) {
+            int end = Math.min(source.length(), start + chunkSize);
+            while (end < source.length() && source.charAt(end - 1) != '\n') {
+                end++;
+            }
+            chunks.add(new Chunk(start, end));
+            start = end;
+        }
+        if (chunks.size() < 2) {
+            return new TokenStream(new Scanner(source));
+        }
+
+        List<Future<Chunk>> futures = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            futures.add(ForkJoinPool.commonPool().submit(() -> chunk.scan(source)));
+        }
+        for (Future<Chunk> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                // a chunk keeps its lexical error for the stitching, anything else is a bug
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
+        TokenStream stitched = new TokenStream(source, Math.max(16, source.length() / 4));
+        Scanner fixup = new Scanner(source);
+        int resume = 0;
+        int lineBase = 1;
+        for (Chunk chunk : chunks) {
+            int base = lineBase;
+            lineBase += chunk.newlines;
+            if (resume >= chunk.end) {
+                continue;
+            }
+            TokenStream tokens = chunk.tokens;
+            int first = 0;
+            while (first < tokens.size && tokens.starts[first] < resume) {
+                first++;
+            }
+            if (first == tokens.size || tokens.starts[first] != resume) {
+                // boundary fixup: scan sequentially until the chunk's tokens line up again
+                fixup.seek(resume, base + newlines(source, chunk.start, resume));
+                while (true) {
+                    int token = stitched.scan(fixup);
+                    if (token == 255) {
+                        return stitched;
+                    }
+                    int last = stitched.starts[stitched.size - 1];
+                    while (first < tokens.size && tokens.starts[first] < last) {
+                        first++;
+                    }
+                    if (first < tokens.size && tokens.starts[first] == last || last >= chunk.end) {
+                        stitched.size--;
+                        resume = last;
+                        break;
+                    }
+                }
+                if (resume >= chunk.end) {
+                    continue;
+                }
+            }
+            stitched.append(tokens, first, base - 1);
+            if (chunk.eof) {
+                return stitched;
+            }
+            resume = chunk.resume;
+        }
+        // the last chunk ends with EOF
+        return stitched;
+    }
+
+    private TokenStream(CharSource source, int capacity) {
+        this.source = source;
+        kinds = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+    }
+
+    // files of more than one chunk are scanned in parallel
+    public TokenStream(String fileName) throws IOException, ErrorMessage {
+        this(scanParallel(new CharSource(fileName)));
+    }
+
+    private TokenStream(TokenStream scanned) {
+        source = scanned.source;
+        kinds = scanned.kinds;
+        starts = scanned.starts;
+        lengths = scanned.lengths;
+        lines = scanned.lines;
+        size = scanned.size;
+    }
+
+    public TokenStream(Scanner scanner) throws ErrorMessage {
+        this(scanner.getSource(), Math.max(16, scanner.getSource().length() / 4));
+        while (scan(scanner) != 255) ;
+    } // constructor: scan the whole input
+}
@@ -3,13 +3,12 @@ package ir;
 import error.ErrorMessage;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
-import static parser.EBNFUtil.isNumeric;
 
 /**
  * @LocalOptim DFS every block
- * @GlobalOptim top-bottom --> BFS dom tree; bottom-top --> BFS reverse dom tree
+ * @GlobalOptim dataflow analyses run on a worklist seeded in reverse postorder, then rewrite every block once
  * @Boolean to show if there are changes to ensure convergence
  */
 
@@ -22,21 +21,23 @@ public class Analysis {
     private List<CFGBlock> cfgBlocks;
     private List<CFGBlock> rootBlocks;
     private List<CFGBlock> exitBlocks;
-    private Queue<CFGBlock> queue;
-    private Map<TACTerm, Set<LiveVariable>> entriesLiveVariables;
-    private Map<TACTerm, Set<LiveVariable>> exitsLiveVariables;
+    private Map<CFGBlock, Liveness> liveVariables;
+    private DefUse defUse;
+    private Variable.Pool pool;
 
 
     public Analysis(SymbolTable symbolTable, List<TACTerm> terms, List<CFGBlock> cfgBlocks,
                     List<CFGBlock> rootBlocks, List<CFGBlock> exitBlocks,
                     List<List<CFGBlock>> cfgForest, List<List<CFGBlock>> cfgReverseForest) throws ErrorMessage {
         this.symbolTable = symbolTable;
+        this.pool = symbolTable.getPool();
         this.terms = terms;
         this.cfgBlocks = cfgBlocks;
         this.rootBlocks = rootBlocks;
         this.exitBlocks = exitBlocks;
         this.cfgForest = cfgForest;
         this.cfgReverseForest = cfgReverseForest;
+        this.defUse = new DefUse(terms);
         reset();
 
     }
@@ -98,10 +99,7 @@ public class Analysis {
         boolean change = PHItranslation();
         for (CFGBlock rootBlock : rootBlocks) {
             CP cp = new CP();
-            while (BFS(rootBlock, cp)) {
-                reset();
-            }
-            reset();
+            solve(rootBlock, cp);
             if (DFSOptimize(rootBlock, cp))
                 change = true;
             reset();
@@ -114,10 +112,7 @@ public class Analysis {
         boolean change = PHItranslation();
         for (CFGBlock rootBlock : rootBlocks) {
             CSE cse = new CSE();
-            while (BFS(rootBlock, cse)) {
-                reset();
-            }
-            reset();
+            solve(rootBlock, cse);
             if (DFSOptimize(rootBlock, cse))
                 change = true;
             reset();
@@ -130,10 +125,7 @@ public class Analysis {
         boolean change = PHItranslation();
         for (CFGBlock exitBlock : exitBlocks) {
             Liveness liveness = new Liveness();
-            while (ReverseBFS(exitBlock, liveness)) {
-                reset();
-            }
-            reset();
+            solve(exitBlock, liveness);
             if (ReverseDFSOptimize(exitBlock, liveness))
                 change = true;
             reset();
@@ -151,103 +143,181 @@ public class Analysis {
         boolean optimize(CFGBlock block);
     }
 
-    private class AvailableExpressionWrap {
-        private final Integer lineCount;
-        private final AvailableExpression expression;
-        public AvailableExpressionWrap(AvailableExpression expression) {
-            this.lineCount = expression.getLineCount();
-            this.expression = expression;
+    /**
+     * A dataflow problem over the terms of a block. The elements are numbered densely per
+     * function before solving and every set is a long[] bitset (see Bits). process meets the
+     * out sets of the neighbours the analysis reads (predecessors forward, successors backward),
+     * runs the block through transfer and reports whether the out set of the block changed.
+     * Blocks not processed yet count as empty sets. By default every term keeps the sets
+     * around it in entries and exits, analyses that summarize whole blocks override
+     * transfer(CFGBlock, long[]).
+     */
+    private abstract class Dataflow implements GlobalOptimization {
+        protected final boolean forward;
+        protected final Map<TACTerm, long[]> entries;
+        protected final Map<TACTerm, long[]> exits;
+        protected final List<CFGBlock> blocks;
+        private long[][] analysis;
+        private long[] none;
+
+        protected Dataflow(boolean forward) {
+            this.forward = forward;
+            entries = new HashMap<>();
+            exits = new HashMap<>();
+            blocks = new ArrayList<>();
         }
 
-        public Integer getLineCount() {
-            return lineCount;
-        }
+        // give the elements term generates or reads their numbers
+        protected abstract void number(TACTerm term);
 
-        public AvailableExpression getExpression() {
-            return expression;
+        protected abstract int size();
+
+        // combine the out set of one more neighbour into set
+        protected abstract void meet(long[] set, long[] input);
+
+        // turn the set before term into the set after it
+        protected abstract void transfer(TACTerm term, long[] set);
+
+        private void number(List<CFGBlock> order) {
+            blocks.addAll(order);
+            for (CFGBlock block : blocks) {
+                for (TACTerm term : block.getTerms()) {
+                    if (!term.isDeleted())
+                        number(term);
+                }
+            }
+            analysis = new long[cfgBlocks.size() + 1][];
+            none = Bits.of(size());
         }
 
         @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof AvailableExpressionWrap)) return false;
-            AvailableExpressionWrap that = (AvailableExpressionWrap) o;
-            return getLineCount().equals(that.getLineCount()) && getExpression().equals(that.getExpression());
+        public boolean process(CFGBlock block) {
+            long[] set = null;
+            for (CFGBlock cfgBlock : forward ? block.getCfgParents() : block.getCfgChildren()) {
+                long[] input = analysis[cfgBlock.getBlockIndex()];
+                if (input == null)
+                    input = none;
+                if (set == null) {
+                    set = input.clone();
+                } else {
+                    meet(set, input);
+                }
+            }
+            if (set == null)
+                set = none.clone();
+            set = transfer(block, set);
+            long[] previous = analysis[block.getBlockIndex()];
+            analysis[block.getBlockIndex()] = set;
+            return !Arrays.equals(set, previous);
         }
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(getLineCount(), getExpression());
+        // the out set of block from the set meet made, which it may keep
+        protected long[] transfer(CFGBlock block, long[] set) {
+            List<TACTerm> blockTerms = block.getTerms();
+            for (int i = 0; i < blockTerms.size(); i++) {
+                TACTerm term = blockTerms.get(forward ? i : blockTerms.size() - 1 - i);
+                if (term.isDeleted())
+                    continue;
+                (forward ? entries : exits).put(term, set);
+                set = set.clone();
+                transfer(term, set);
+                (forward ? exits : entries).put(term, set);
+            }
+            return set;
+        }
+    }
+
+    // worklist iteration to the fixpoint, a block is processed again only when an out set it reads changed
+    private void solve(CFGBlock start, Dataflow dataflow) {
+        List<CFGBlock> order = new ArrayList<>();
+        reset();
+        postorder(start, dataflow.forward, order);
+        reset();
+        Collections.reverse(order);
+        dataflow.number(order);
+
+        boolean[] region = new boolean[cfgBlocks.size() + 1];
+        boolean[] queued = new boolean[cfgBlocks.size() + 1];
+        for (CFGBlock block : order) {
+            region[block.getBlockIndex()] = true;
+            queued[block.getBlockIndex()] = true;
+        }
+        Deque<CFGBlock> worklist = new ArrayDeque<>(order);
+        while (!worklist.isEmpty()) {
+            CFGBlock block = worklist.poll();
+            queued[block.getBlockIndex()] = false;
+            if (dataflow.process(block)) {
+                for (CFGBlock next : dataflow.forward ? block.getCfgChildren() : block.getCfgParents()) {
+                    if (region[next.getBlockIndex()] && !queued[next.getBlockIndex()]) {
+                        queued[next.getBlockIndex()] = true;
+                        worklist.add(next);
+                    }
+                }
+            }
         }
     }
 
-    private class CSE implements GlobalOptimization {
+    private void postorder(CFGBlock block, boolean forward, List<CFGBlock> order) {
+        block.setVisited(true);
+        for (CFGBlock cfgBlock : forward ? block.getCfgChildren() : block.getCfgParents()) {
+            if (!cfgBlock.isVisited()) {
+                postorder(cfgBlock, forward, order);
+            }
+        }
+        order.add(block);
+    }
 
-        private Map<Integer, Set<AvailableExpression>> analysisMap;
-        private Map<TACTerm, Set<AvailableExpression>> entries;
-        private Map<TACTerm, Set<AvailableExpression>> exits;
-        private Queue<TACTerm> availableTerms;
+    private class CSE extends Dataflow {
+        // an element per arithmetic term, equal expressions of several terms form a class
+        private final List<AvailableExpression> expressions;
+        private final Map<TACTerm, Integer> ids;
+        private final Map<AvailableExpression, List<Integer>> classes;
 
         public CSE() {
-            analysisMap = new HashMap<>();
-            entries = new HashMap<>();
-            exits = new HashMap<>();
-            availableTerms = new LinkedList<>();
+            super(true);
+            expressions = new ArrayList<>();
+            ids = new HashMap<>();
+            classes = new HashMap<>();
         }
 
         @Override
-        public boolean process(CFGBlock block) {
-            boolean change = false;
-            Set<AvailableExpressionWrap> inputVariablesWrap = null;
-            for (CFGBlock cfgBlock: block.getCfgParents()) {
-                // intersection
-                if (inputVariablesWrap == null) {
-                    inputVariablesWrap = analysisMap.getOrDefault(cfgBlock.getBlockIndex(), new HashSet<>()).stream().map(AvailableExpressionWrap::new).collect(Collectors.toSet());
-                } else {
-                    inputVariablesWrap.retainAll(analysisMap.getOrDefault(cfgBlock.getBlockIndex(), new HashSet<>()).stream().map(AvailableExpressionWrap::new).collect(Collectors.toSet()));
-                }
+        protected void number(TACTerm term) {
+            if (term.getOps().isArithmetic()) {
+                AvailableExpression expression = new AvailableExpression(term.getLineCount(), term.getOps(), term.getSrc(), term.getDst());
+                ids.put(term, expressions.size());
+                classes.computeIfAbsent(expression, k -> new ArrayList<>()).add(expressions.size());
+                expressions.add(expression);
             }
-            if (inputVariablesWrap == null)
-                inputVariablesWrap = new HashSet<>();
-            Set<AvailableExpression> inputVariables = inputVariablesWrap.stream().map(AvailableExpressionWrap::getExpression).collect(Collectors.toSet());;
+        }
 
-            for (int i = 0; i < block.getTerms().size(); i++) {
-                if (!block.getTerms().get(i).isDeleted()) {
-                    availableTerms.add(block.getTerms().get(i));
-                }
-            }
-            if (availableTerms.size() == 0) {
-                analysisMap.put(block.getBlockIndex(), inputVariables);
-                return false;
-            }
-            if (entries.get(availableTerms.peek()) == null) {
-                entries.put(availableTerms.peek(), inputVariables);
-                change = true;
-            } else {
-                if (!entries.get(availableTerms.peek()).equals(inputVariables)) {
-                    change = true;
-                    entries.put(availableTerms.peek(), inputVariables);
-                }
+        @Override
+        protected int size() {
+            return expressions.size();
+        }
+
+        @Override
+        protected void meet(long[] set, long[] input) {
+            // intersection
+            Bits.and(set, input);
+        }
+
+        @Override
+        protected void transfer(TACTerm term, long[] set) {
+            if (term.getOps().isArithmetic()) {
+                int id = ids.get(term);
+                // a class stays with the first of its terms that became available
+                if (available(set, classes.get(expressions.get(id))) < 0)
+                    Bits.set(set, id);
             }
+        }
 
-            while (!availableTerms.isEmpty()) {
-                TACTerm term = availableTerms.poll();
-                assert (entries.get(term) != null): "Error with CSE analysis algorithm";
-                Set<AvailableExpression> entryVariables = entries.get(term);
-                Set<AvailableExpression> exitVariables = new HashSet<>(entryVariables);
-                exits.put(term, exitVariables);
-                if (term.getOps().equals("ADD") || term.getOps().equals("ADDA") || term.getOps().equals("SUB")
-                        || term.getOps().equals("MUL") || term.getOps().equals("DIV") || term.getOps().equals("CMP")) {
-                    AvailableExpression expression = new AvailableExpression(term.getLineCount(), term.getOps(), term.getSrc(), term.getDst());
-                    exitVariables.add(expression);
-                }
-                if (availableTerms.isEmpty()) {
-                    analysisMap.put(block.getBlockIndex(), exitVariables);
-                    break;
-                }
-                entries.put(availableTerms.peek(), exitVariables);
+        // the element of the class in set, there is at most one
+        private int available(long[] set, List<Integer> members) {
+            for (int member : members) {
+                if (Bits.get(set, member))
+                    return member;
             }
-            return change;
+            return -1;
         }
 
         @Override
@@ -257,16 +327,14 @@ public class Analysis {
                 TACTerm term = block.getTerms().get(i);
                 if (term.isDeleted())
                     continue;
-                Set<AvailableExpression> entryVariables = entries.get(block.getTerms().get(i));
+                long[] entryVariables = entries.get(block.getTerms().get(i));
                 switch (term.getOps()) {
-                    case "ADD", "ADDA", "SUB", "MUL", "DIV", "CMP" -> {
-                        AvailableExpression expression = new AvailableExpression(-1, term.getOps(), term.getSrc(), term.getDst());
-                        for (AvailableExpression entryExpression: entryVariables) {
-                            if (entryExpression.equals(expression))
-                            if (isChange(terms, new Variable("(" + term.getLineCount() + ")", 0),
-                                    new Variable("(" + entryExpression.getLineCount() + ")", 0)))
-                                change = true;
-                        }
+                    case ADD, ADDA, SUB, MUL, DIV, CMP -> {
+                        List<Integer> members = classes.get(new AvailableExpression(-1, term.getOps(), term.getSrc(), term.getDst()));
+                        int id = members == null ? -1 : available(entryVariables, members);
+                        if (id >= 0 && defUse.replaceAllUsesWith(pool.temporary(term.getLineCount()),
+                                pool.temporary(expressions.get(id).getLineCount())))
+                            change = true;
                     }
                     default -> {
                     }
@@ -277,74 +345,64 @@ public class Analysis {
     }
 
 
-    private class CP implements GlobalOptimization {
-
-        private Map<Integer, Set<AvailableExpression>> analysisMap;
-        private Map<TACTerm, Set<AvailableExpression>> entries;
-        private Map<TACTerm, Set<AvailableExpression>> exits;
-        private Queue<TACTerm> availableTerms;
+    private class CP extends Dataflow {
+        // an element per distinct move, the pass only reads their operands
+        private final List<AvailableExpression> expressions;
+        private final Map<AvailableExpression, Integer> classes;
+        private final Map<TACTerm, Integer> ids;
 
         public CP() {
-            analysisMap = new HashMap<>();
-            entries = new HashMap<>();
-            exits = new HashMap<>();
-            availableTerms = new LinkedList<>();
+            super(true);
+            expressions = new ArrayList<>();
+            classes = new HashMap<>();
+            ids = new HashMap<>();
         }
 
         @Override
-        public boolean process(CFGBlock block) {
-            boolean change = false;
-            Set<AvailableExpression> inputVariables = null;
-            for (CFGBlock cfgBlock: block.getCfgParents()) {
-                // intersection
-                if (inputVariables == null) {
-                    inputVariables = new HashSet<>(analysisMap.getOrDefault(cfgBlock.getBlockIndex(), new HashSet<>()));
-                } else {
-                    inputVariables.addAll(analysisMap.getOrDefault(cfgBlock.getBlockIndex(), new HashSet<>()));
+        protected void number(TACTerm term) {
+            if (term.getOps() == TacOp.MOVE) {
+                AvailableExpression expression = new AvailableExpression(term.getLineCount(), term.getOps(), term.getSrc(), term.getDst());
+                Integer id = classes.get(expression);
+                if (id == null) {
+                    id = expressions.size();
+                    classes.put(expression, id);
+                    expressions.add(expression);
                 }
+                ids.put(term, id);
             }
+        }
 
-            if (inputVariables == null)
-                inputVariables = new HashSet<>();
+        @Override
+        protected int size() {
+            return expressions.size();
+        }
 
-            for (int i = 0; i < block.getTerms().size(); i++) {
-                if (!block.getTerms().get(i).isDeleted()) {
-                    availableTerms.add(block.getTerms().get(i));
-                }
-            }
+        @Override
+        protected void meet(long[] set, long[] input) {
+            // union
+            Bits.or(set, input);
+        }
 
-            if (availableTerms.size() == 0) {
-                analysisMap.put(block.getBlockIndex(), inputVariables);
-                return false;
+        @Override
+        protected void transfer(TACTerm term, long[] set) {
+            if (term.getOps() == TacOp.MOVE) {
+                Bits.set(set, ids.get(term));
             }
-            if (entries.get(availableTerms.peek()) == null) {
-                entries.put(availableTerms.peek(), inputVariables);
-                change = true;
-            } else {
-                if (!entries.get(availableTerms.peek()).equals(inputVariables)) {
-                    change = true;
-                    entries.put(availableTerms.peek(), inputVariables);
+        }
 
-                }
-            }
-            while (!availableTerms.isEmpty()) {
-                TACTerm term = availableTerms.poll();
-                assert (entries.get(term) != null): "Error with CP analysis algorithm";
-                Set<AvailableExpression> entryVariables = entries.get(term);
-                Set<AvailableExpression> exitVariables = new HashSet<>(entryVariables);
-                exits.put(term, exitVariables);
-                if (term.getOps().equals("MOVE")) {
-                    AvailableExpression expression = new AvailableExpression(term.getLineCount(), term.getOps(), term.getSrc(), term.getDst());
-                    exitVariables.add(expression);
-                }
-                if (availableTerms.isEmpty()) {
-                    analysisMap.put(block.getBlockIndex(), exitVariables);
-                    break;
-                }
-                entries.put(availableTerms.peek(), exitVariables);
+        /**
+         * The moves in set, last numbered first. The rewrite below substitutes them in this order:
+         * moves are numbered in solve order, where a move comes before the copies of its target
+         * it reaches, so a copy of a copy is replaced by the first source within one pass. Copies
+         * numbered the other way round, around a loop, are left to a repeated pass.
+         */
+        private List<AvailableExpression> getExpressions(long[] set) {
+            List<AvailableExpression> result = new ArrayList<>();
+            for (int id = Bits.next(set, 0); id >= 0; id = Bits.next(set, id + 1)) {
+                result.add(expressions.get(id));
             }
-
-            return change;
+            Collections.reverse(result);
+            return result;
         }
 
         @Override
@@ -354,59 +412,64 @@ public class Analysis {
                 TACTerm term = block.getTerms().get(i);
                 if (term.isDeleted())
                     continue;
-                Set<AvailableExpression> entryVariables = entries.get(block.getTerms().get(i));
+                List<AvailableExpression> entryVariables = getExpressions(entries.get(block.getTerms().get(i)));
                 switch (term.getOps()) {
-                    case "ADD":
-                    case "ADDA":
-                    case "SUB":
-                    case "MUL":
-                    case "DIV":
-                    case "CMP":
-                    case "STORE":
+                    case ADD:
+                    case ADDA:
+                    case SUB:
+                    case MUL:
+                    case DIV:
+                    case CMP:
+                    case STORE:
                         for (AvailableExpression expression: entryVariables) {
                             if (term.getSrc().equals(expression.getDst())) {
                                 term.setSrc(expression.getSrc());
+                                defUse.addUse(term, expression.getSrc());
                                 change = true;
                             }
                             if (term.getDst().equals(expression.getDst())) {
                                 term.setDst(expression.getSrc());
+                                defUse.addUse(term, expression.getSrc());
                                 change = true;
                             }
                         }
                         break;
-                    case "SG":
-                    case "WRITE":
-                    case "MOVE":
+                    case SG:
+                    case WRITE:
+                    case MOVE:
                         for (AvailableExpression expression: entryVariables) {
                             if (term.getSrc().equals(expression.getDst())) {
                                 term.setSrc(expression.getSrc());
+                                defUse.addUse(term, expression.getSrc());
                                 change = true;
                             }
                         }
                         break;
-                    case "LG":
+                    case LG:
                         break;
-                    case "RET":
+                    case RET:
                         if (term.getSrc() != null) {
                             for (AvailableExpression expression: entryVariables) {
                                 if (term.getSrc().equals(expression.getDst())) {
                                     term.setSrc(expression.getSrc());
+                                    defUse.addUse(term, expression.getSrc());
                                     change = true;
                                 }
                             }
                         }
                         break;
-                    case "CALL":
+                    case CALL:
                         for (AvailableExpression expression: entryVariables) {
                             for (int j = 0; j < term.getDsts().size(); j++) {
                                 if (term.getDsts().get(j).equals(expression.getDst())) {
                                     term.getDsts().set(j, expression.getSrc());
+                                    defUse.addUse(term, expression.getSrc());
                                     change = true;
                                 }
                             }
                         }
                         break;
-                    case "PHI":
+                    case PHI:
                         Set<Integer> removes = new HashSet<>();
                         for (AvailableExpression expression: entryVariables) {
                             for (int j = 0; j < term.getDsts().size(); j++) {
@@ -421,6 +484,7 @@ public class Analysis {
                                     if (term.getSrc().getName().equals(expression.getSrc().getName()) && term.getLineCount() == expression.getSrc().getIndex())
                                         removes.add(j);
                                     term.getDsts().set(j, expression.getSrc());
+                                    defUse.addUse(term, expression.getSrc());
                                     change = true;
                                 }
                             }
@@ -442,210 +506,265 @@ public class Analysis {
         }
     }
 
-    private class Liveness implements GlobalOptimization {
-        private Map<Integer, Set<LiveVariable>> analysisMap;
-        private Map<TACTerm, Set<LiveVariable>> entries;
-        private Map<TACTerm, Set<LiveVariable>> exits;
-        private Stack<TACTerm> availableTerms;
+    /**
+     * Solved per block: a block makes its live in set as uses | (live out & keeps), where
+     * uses are read before any term of the block defines them and keeps are not defined in
+     * it. Only the live out set of each block is stored, walk redoes the terms of one block.
+     */
+    private class Liveness extends Dataflow {
+        private final List<Variable> variables;
+        private final Map<Variable, Integer> ids; // numbered per function, keys are per compilation
+        private long[][] uses;
+        private long[][] keeps;
+        private long[][] liveOuts;
 
         public Liveness() {
-            analysisMap = new HashMap<>();
-            entries = new HashMap<>();
-            exits = new HashMap<>();
-            availableTerms = new Stack<>();
+            super(false);
+            variables = new ArrayList<>();
+            ids = new HashMap<>();
         }
 
         @Override
-        public boolean process(CFGBlock block) {
-            boolean change = false;
-            Set<LiveVariable> inputVariables = new HashSet<>();
-            for (CFGBlock cfgBlock: block.getCfgChildren()) {
-                // union
-                inputVariables.addAll(analysisMap.getOrDefault(cfgBlock.getBlockIndex(), new HashSet<>()));
-            }
-
-            for (int i = 0; i < block.getTerms().size(); i++) {
-                if (!block.getTerms().get(i).isDeleted()) {
-                    availableTerms.add(block.getTerms().get(i));
+        protected void number(TACTerm term) {
+            number(term.getSrc());
+            number(term.getDst());
+            if (term.getDsts() != null) {
+                for (Variable variable : term.getDsts()) {
+                    number(variable);
                 }
             }
-            if (availableTerms.size() == 0) {
-                analysisMap.put(block.getBlockIndex(), inputVariables);
-                return false;
-            }
-            if (exits.get(availableTerms.peek()) == null) {
-                exits.put(availableTerms.peek(), inputVariables);
-                change = true;
-            } else {
-                if (!exits.get(availableTerms.peek()).equals(inputVariables)) {
-                    change = true;
-                    exits.put(availableTerms.peek(), inputVariables);
-                }
+            if (term.getOps().definesValue())
+                number(pool.temporary(term.getLineCount()));
+            if (term.getOps() == TacOp.PHI)
+                number(pool.of(term.getSrc().getName(), term.getLineCount()));
+        }
+
+        private void number(Variable variable) {
+            if (variable == null)
+                return;
+            if (ids.putIfAbsent(variable, variables.size()) == null)
+                variables.add(variable);
+        }
+
+        private int id(Variable variable) {
+            Integer id = ids.get(variable);
+            return id == null ? -1 : id;
+        }
+
+        private boolean contains(long[] set, Variable variable) {
+            int id = id(variable);
+            return id >= 0 && Bits.get(set, id);
+        }
+
+        private void add(long[] set, Variable variable) {
+            Bits.set(set, id(variable));
+        }
+
+        private void remove(long[] set, Variable variable) {
+            int id = id(variable);
+            if (id >= 0)
+                Bits.clear(set, id);
+        }
+
+        @Override
+        protected int size() {
+            return variables.size();
+        }
+
+        @Override
+        protected void meet(long[] set, long[] input) {
+            // union
+            Bits.or(set, input);
+        }
+
+        @Override
+        protected long[] transfer(CFGBlock block, long[] exitVariables) {
+            int index = block.getBlockIndex();
+            if (uses == null) {
+                uses = new long[cfgBlocks.size() + 1][];
+                keeps = new long[cfgBlocks.size() + 1][];
+                liveOuts = new long[cfgBlocks.size() + 1][];
+            }
+            if (uses[index] == null) {
+                // the terms are gen/kill, running them over nothing and over everything gives the summary
+                long[] all = new long[exitVariables.length];
+                Arrays.fill(all, -1L);
+                uses[index] = walk(block, new long[exitVariables.length]);
+                keeps[index] = walk(block, all);
+            }
+            liveOuts[index] = exitVariables;
+            long[] entryVariables = exitVariables.clone();
+            Bits.and(entryVariables, keeps[index]);
+            Bits.or(entryVariables, uses[index]);
+            return entryVariables;
+        }
+
+        // runs the live terms of block backwards over set
+        private long[] walk(CFGBlock block, long[] set) {
+            for (int i = block.getTerms().size() - 1; i >= 0; i--) {
+                TACTerm term = block.getTerms().get(i);
+                if (!term.isDeleted())
+                    transfer(term, set);
             }
+            return set;
+        }
 
-            while (!availableTerms.empty()) {
-                TACTerm term = availableTerms.pop();
-                assert (exits.get(term) != null): "Error with Liveness analysis algorithm";
-                Set<LiveVariable> exitVariables = exits.get(term);
-                Set<LiveVariable> entryVariables = new HashSet<>(exitVariables);
-                entries.put(term, entryVariables);
-                switch (term.getOps()) {
-                    case "ADD":
-                    case "ADDA":
-                    case "SUB":
-                    case "MUL":
-                    case "DIV":
-                    case "CMP":
-                        // kill
-                        entryVariables.remove(new LiveVariable("(" + term.getLineCount() + ")"));
-                        if (!term.getSrc().isNumber()) {
-                            entryVariables.add(new LiveVariable(term.getSrc()));
-                        }
-                        if (!term.getDst().isNumber()) {
-                            entryVariables.add(new LiveVariable(term.getDst()));
-                        }
-                        break;
-                    case "BEQ":
-                    case "BNE":
-                    case "BLT":
-                    case "BGE":
-                    case "BGT":
-                    case "BLE":
-                    case "WRITE":
-                    case "SG":
-                        if (!term.getSrc().isNumber()) {
-                            entryVariables.add(new LiveVariable(term.getSrc()));
-                        }
-                        break;
-                    case "STORE":
-                        if (!term.getSrc().isNumber()) {
-                            entryVariables.add(new LiveVariable(term.getSrc()));
-                        }
-                        entryVariables.add(new LiveVariable(term.getDst()));
-                        break;
-                    case "READ":
-                        // kill
-                        entryVariables.remove(new LiveVariable("(" + term.getLineCount() + ")"));
-                        break;
-                    case "LOAD":
-                        // kill
-                        entryVariables.remove(new LiveVariable("(" + term.getLineCount() + ")"));
-                        if (!term.getSrc().isNumber()) {
-                            entryVariables.add(new LiveVariable(term.getSrc()));
-                        }
-                        break;
-                    case "LG":
-                        entryVariables.remove(new LiveVariable(term.getSrc()));
-                        break;
-                    case "MOVE":
-                        // kill
-                        entryVariables.remove(new LiveVariable(term.getDst()));
+        @Override
+        protected void transfer(TACTerm term, long[] entryVariables) {
+            switch (term.getOps()) {
+                case ADD:
+                case ADDA:
+                case SUB:
+                case MUL:
+                case DIV:
+                case CMP:
+                    // kill
+                    remove(entryVariables, pool.temporary(term.getLineCount()));
+                    if (!term.getSrc().isNumber()) {
+                        add(entryVariables, term.getSrc());
+                    }
+                    if (!term.getDst().isNumber()) {
+                        add(entryVariables, term.getDst());
+                    }
+                    break;
+                case BEQ:
+                case BNE:
+                case BLT:
+                case BGE:
+                case BGT:
+                case BLE:
+                case WRITE:
+                case SG:
+                    if (!term.getSrc().isNumber()) {
+                        add(entryVariables, term.getSrc());
+                    }
+                    break;
+                case STORE:
+                    if (!term.getSrc().isNumber()) {
+                        add(entryVariables, term.getSrc());
+                    }
+                    add(entryVariables, term.getDst());
+                    break;
+                case READ:
+                    // kill
+                    remove(entryVariables, pool.temporary(term.getLineCount()));
+                    break;
+                case LOAD:
+                    // kill
+                    remove(entryVariables, pool.temporary(term.getLineCount()));
+                    if (!term.getSrc().isNumber()) {
+                        add(entryVariables, term.getSrc());
+                    }
+                    break;
+                case LG:
+                    remove(entryVariables, term.getSrc());
+                    break;
+                case MOVE:
+                    // kill
+                    remove(entryVariables, term.getDst());
+                    if (!term.getSrc().isNumber()) {
+                        add(entryVariables, term.getSrc());
+                    }
+                    break;
+                case RET:
+                    Arrays.fill(entryVariables, 0);
+                    if (term.getSrc() != null) {
                         if (!term.getSrc().isNumber()) {
-                            entryVariables.add(new LiveVariable(term.getSrc()));
-                        }
-                        break;
-                    case "RET":
-                        entryVariables.clear();
-                        if (term.getSrc() != null) {
-                            if (!term.getSrc().isNumber()) {
-                                entryVariables.add(new LiveVariable(term.getSrc()));
-                            }
+                            add(entryVariables, term.getSrc());
                         }
-                        break;
-                    case "CALL":
-                        // We cannot remove call because of global variables
-                        for (int j = 0; j < term.getDsts().size(); j++) {
-                            if (!term.getDsts().get(j).isNumber()) {
-                                entryVariables.add(new LiveVariable(term.getDsts().get(j)));
-                            }
+                    }
+                    break;
+                case CALL:
+                    // We cannot remove call because of global variables
+                    for (int j = 0; j < term.getDsts().size(); j++) {
+                        if (!term.getDsts().get(j).isNumber()) {
+                            add(entryVariables, term.getDsts().get(j));
                         }
-                        break;
-                    case "PHI":
-                        // kill
-                        entryVariables.remove(new LiveVariable(term.getSrc().getName(), term.getLineCount()));
-                        for (int j = 0; j < term.getDsts().size(); j++) {
-                            if (!term.getDsts().get(j).isNumber()) {
-                                entryVariables.add(new LiveVariable(term.getDsts().get(j)));
-                            }
+                    }
+                    break;
+                case PHI:
+                    // kill
+                    remove(entryVariables, pool.of(term.getSrc().getName(), term.getLineCount()));
+                    for (int j = 0; j < term.getDsts().size(); j++) {
+                        if (!term.getDsts().get(j).isNumber()) {
+                            add(entryVariables, term.getDsts().get(j));
                         }
-                        break;
-                    case "WRITENL":
-                        break;
-                }
-                if (availableTerms.empty()) {
-                    analysisMap.put(block.getBlockIndex(), entryVariables);
+                    }
+                    break;
+                case WRITENL:
                     break;
-                }
-                exits.put(availableTerms.peek(), entryVariables);
             }
-            return change;
         }
 
         @Override
         public boolean optimize(CFGBlock block) {
             boolean change = false;
+            assert liveOuts[block.getBlockIndex()] != null: block.getBlockIndex();
+            long[] exitVariables = liveOuts[block.getBlockIndex()].clone();
             for (int i = block.getTerms().size() - 1; i >= 0; i--) {
                 TACTerm term = block.getTerms().get(i);
                 if (term.isDeleted())
                     continue;
-                Set<LiveVariable> exitVariables = exits.get(block.getTerms().get(i));
-                assert exitVariables != null: block.getTerms().get(i).getOps();
-                switch (term.getOps()) {
-                    case "ADD":
-                    case "ADDA":
-                    case "SUB":
-                    case "MUL":
-                    case "DIV":
-                    case "CMP":
-                    case "LOAD":
-                    case "READ":
-                        if (!exitVariables.contains(new LiveVariable("(" + term.getLineCount() + ")"))) {
-                            term.setDeleted(true);
-                            change = true;
-                        }
-                        break;
-                    case "BEQ":
-                    case "BNE":
-                    case "BLT":
-                    case "BGE":
-                    case "BGT":
-                    case "BLE":
-                    case "WRITE":
-                    case "STORE":
-                    case "RET":
-                    case "CALL":
-                        break;
-                    case "LG":
-                        if (!exitVariables.contains(new LiveVariable(term.getSrc()))) {
-                            term.setDeleted(true);
-                            change = true;
-                        }
-                        break;
-                    case "MOVE":
-                        if (!exitVariables.contains(new LiveVariable(term.getDst()))) {
-                            term.setDeleted(true);
-                            change = true;
-                        }
-                        break;
-                    case "PHI":
-                        if (!exitVariables.contains(new LiveVariable(term.getSrc().getName(), term.getLineCount()))) {
-                            term.setDeleted(true);
-                            change = true;
-                        }
-                        break;
-                }
+                // the sets were solved with every term, one deleted here still counts
+                if (!term.getOps().hasSideEffects())
+                    change |= deleteIfDead(term, exitVariables);
+                transfer(term, exitVariables);
             }
             return change;
         }
 
-        public Map<TACTerm, Set<LiveVariable>> getEntries() {
-            return entries;
+        private boolean deleteIfDead(TACTerm term, long[] exitVariables) {
+            boolean change = false;
+            switch (term.getOps()) {
+                case LG:
+                    if (!contains(exitVariables, term.getSrc())) {
+                        term.setDeleted(true);
+                        change = true;
+                    }
+                    break;
+                case MOVE:
+                    if (!contains(exitVariables, term.getDst())) {
+                        term.setDeleted(true);
+                        change = true;
+                    }
+                    break;
+                case PHI:
+                    if (!contains(exitVariables, pool.of(term.getSrc().getName(), term.getLineCount()))) {
+                        term.setDeleted(true);
+                        change = true;
+                    }
+                    break;
+                default:
+                    if (term.getOps().definesValue() && !contains(exitVariables, pool.temporary(term.getLineCount()))) {
+                        term.setDeleted(true);
+                        change = true;
+                    }
+                    break;
+            }
+            return change;
+        }
+
+        // hands visitor each live term of block, last first, with the variables live into it
+        public void walkEntries(CFGBlock block, BiConsumer<TACTerm, Set<Variable>> visitor) {
+            long[] live = liveOuts[block.getBlockIndex()].clone();
+            for (int i = block.getTerms().size() - 1; i >= 0; i--) {
+                TACTerm term = block.getTerms().get(i);
+                if (term.isDeleted())
+                    continue;
+                transfer(term, live);
+                visitor.accept(term, getVariables(live));
+            }
         }
 
-        public Map<TACTerm, Set<LiveVariable>> getExits() {
-            return exits;
+        private Set<Variable> getVariables(long[] set) {
+            Set<Variable> result = new HashSet<>();
+            for (int id = Bits.next(set, 0); id >= 0; id = Bits.next(set, id + 1)) {
+                result.add(variables.get(id));
+            }
+            return result;
         }
 
+
     }
 
     private class TranslatePHI implements GlobalOptimization {
@@ -658,11 +777,12 @@ public class Analysis {
             for (TACTerm term: block.getTerms()) {
                 if (term.isDeleted())
                     continue;
-                if (term.getOps().equals("PHI") && term.getDsts().size() == 1) {
-                    term.setOps("MOVE");
-                    term.setDst(new Variable(term.getSrc().getName(), term.getLineCount()));
+                if (term.getOps() == TacOp.PHI && term.getDsts().size() == 1) {
+                    term.setOps(TacOp.MOVE);
+                    term.setDst(pool.of(term.getSrc().getName(), term.getLineCount()));
                     term.setSrc(term.getDsts().get(0));
                     term.getPhiSources().clear();
+                    defUse.addUse(term, term.getDst());
                     change = true;
                 }
             }
@@ -686,7 +806,7 @@ public class Analysis {
             for (TACTerm term: block.getTerms()) {
                 if (term.isDeleted())
                     continue;
-                if (term.getOps().equals("SG") && term.getSrc().getName().equals(term.getStoreName()) && term.getSrc().getIndex() == 0) {
+                if (term.getOps() == TacOp.SG && term.getSrc().getName().equals(term.getStoreName()) && term.getSrc().getIndex() == 0) {
                     term.setDeleted(true);
                     change = true;
                 }
@@ -700,26 +820,6 @@ public class Analysis {
         }
     }
 
-    private boolean BFS(CFGBlock root, GlobalOptimization globalOptimization) {
-        boolean change = false;
-        root.setVisited(true);
-        queue = new LinkedList<>();
-        queue.add(root);
-        while (queue.size() != 0) {
-            CFGBlock block = queue.poll();
-            if (globalOptimization.process(block))
-                change = true;
-            List<CFGBlock> blocks = block.getIdoms();
-            for (CFGBlock cfgBlock : blocks) {
-                if (!cfgBlock.isVisited()) {
-                    cfgBlock.setVisited(true);
-                    queue.add(cfgBlock);
-                }
-            }
-        }
-        return change;
-    }
-
     private boolean DFSOptimize(CFGBlock block, GlobalOptimization globalOptimization) {
         block.setVisited(true);
         boolean change = false;
@@ -735,26 +835,6 @@ public class Analysis {
         return change;
     }
 
-    private boolean ReverseBFS(CFGBlock root, GlobalOptimization globalOptimization) {
-        boolean change = false;
-        root.setVisited(true);
-        queue = new LinkedList<>();
-        queue.add(root);
-        while (queue.size() != 0) {
-            CFGBlock block = queue.poll();
-            if (globalOptimization.process(block))
-                change = true;
-            List<CFGBlock> blocks = block.getReverseIDoms();
-            for (CFGBlock cfgBlock : blocks) {
-                if (!cfgBlock.isVisited()) {
-                    cfgBlock.setVisited(true);
-                    queue.add(cfgBlock);
-                }
-            }
-        }
-        return change;
-    }
-
     private boolean ReverseDFSOptimize(CFGBlock block, GlobalOptimization globalOptimization) {
         block.setVisited(true);
         boolean change = false;
@@ -783,53 +863,53 @@ public class Analysis {
             for (TACTerm term : localTerms) {
                 if (term.isDeleted())
                     continue;
-                String ops = term.getOps();
-                Variable target = new Variable("(" + term.getLineCount() + ")", 0);
+                TacOp ops = term.getOps();
+                Variable target = pool.temporary(term.getLineCount());
                 Variable term1 = term.getSrc();
                 Variable term2 = term.getDst();
 
                 switch (ops) {
-                    case "MUL":
-                        if (term1.getName().equals("0") || term2.getName().equals("0")) {
-                            if (isChange(terms, target, new Variable("0", 0)))
+                    case MUL:
+                        if (term1.isConstant(0) || term2.isConstant(0)) {
+                            if (defUse.replaceAllUsesWith(target, pool.constant(0)))
                                 change = true;
-                        } else if (term1.getName().equals("1")) {
-                            if (isChange(terms, target, term2))
+                        } else if (term1.isConstant(1)) {
+                            if (defUse.replaceAllUsesWith(target, term2))
                                 change = true;
-                        } else if (term2.getName().equals("1")) {
-                            if (isChange(terms, target, term1))
+                        } else if (term2.isConstant(1)) {
+                            if (defUse.replaceAllUsesWith(target, term1))
                                 change = true;
-                        } else if (term1.getName().equals("2")) {
-                            term.setOps("ADD");
+                        } else if (term1.isConstant(2)) {
+                            term.setOps(TacOp.ADD);
                             term.setSrc(term2);
                             term.setDst(term2);
                             change = true;
-                        } else if (term2.getName().equals("2")) {
-                            term.setOps("ADD");
+                        } else if (term2.isConstant(2)) {
+                            term.setOps(TacOp.ADD);
                             term.setSrc(term1);
                             term.setDst(term1);
                             change = true;
                         }
                         break;
-                    case "DIV":
-                        assert (!term2.getName().equals("0")) : "Dividing zero";
-                        if (term2.getName().equals("1")) {
-                            if (isChange(terms, target, term1))
+                    case DIV:
+                        assert (!term2.isConstant(0)) : "Dividing zero";
+                        if (term2.isConstant(1)) {
+                            if (defUse.replaceAllUsesWith(target, term1))
                                 change = true;
                         }
                         break;
-                    case "ADD":
-                        if (term1.getName().equals("0")) {
-                            if (isChange(terms, target, term2))
+                    case ADD:
+                        if (term1.isConstant(0)) {
+                            if (defUse.replaceAllUsesWith(target, term2))
                                 change = true;
-                        } else if (term2.getName().equals("0")) {
-                            if (isChange(terms, target, term1))
+                        } else if (term2.isConstant(0)) {
+                            if (defUse.replaceAllUsesWith(target, term1))
                                 change = true;
                         }
                         break;
-                    case "SUB":
-                        if (term2.getName().equals("0")) {
-                            if (isChange(terms, target, term1))
+                    case SUB:
+                        if (term2.isConstant(0)) {
+                            if (defUse.replaceAllUsesWith(target, term1))
                                 change = true;
                         }
                         break;
@@ -848,23 +928,23 @@ public class Analysis {
             for (TACTerm term : localTerms) {
                 if (term.isDeleted())
                     continue;
-                String ops = term.getOps();
-                Variable target = new Variable("(" + term.getLineCount() + ")", 0);
+                TacOp ops = term.getOps();
+                Variable target = pool.temporary(term.getLineCount());
                 Variable term1 = term.getSrc();
                 Variable term2 = term.getDst();
-                if ((ops.equals("MUL") || ops.equals("DIV") || ops.equals("ADD") || ops.equals("SUB") || ops.equals("CMP")) && isNumeric(term1.getName()) && isNumeric(term2.getName())) {
-                    int termValue1 = Integer.parseInt(term1.getName());
-                    int termValue2 = Integer.parseInt(term2.getName());
+                if (ops.isArithmetic() && ops != TacOp.ADDA && term1.isNumber() && term2.isNumber()) {
+                    int termValue1 = term1.getValue();
+                    int termValue2 = term2.getValue();
                     switch (ops) {
-                        case "MUL" -> { if (isChange(terms, target, new Variable(String.valueOf(termValue1 * termValue2), 0))) change = true; }
-                        case "DIV" -> {
-                            assert (!term2.getName().equals("0")) : "Dividing zero";
-                            if (isChange(terms, target, new Variable(String.valueOf(termValue1 / termValue2), 0)))
+                        case MUL -> { if (defUse.replaceAllUsesWith(target, pool.constant(termValue1 * termValue2))) change = true; }
+                        case DIV -> {
+                            assert (!term2.isConstant(0)) : "Dividing zero";
+                            if (defUse.replaceAllUsesWith(target, pool.constant(termValue1 / termValue2)))
                                 change = true;
                         }
-                        case "ADD" -> { if (isChange(terms, target, new Variable(String.valueOf(termValue1 + termValue2), 0))) change = true; }
-                        case "SUB" -> { if (isChange(terms, target, new Variable(String.valueOf(termValue1 - termValue2), 0))) change = true; }
-                        case "CMP" -> { if (isChange(terms, target, new Variable(String.valueOf((int) Math.signum(termValue1 - termValue2)), 0))) change = true; }
+                        case ADD -> { if (defUse.replaceAllUsesWith(target, pool.constant(termValue1 + termValue2))) change = true; }
+                        case SUB -> { if (defUse.replaceAllUsesWith(target, pool.constant(termValue1 - termValue2))) change = true; }
+                        case CMP -> { if (defUse.replaceAllUsesWith(target, pool.constant((int) Math.signum(termValue1 - termValue2)))) change = true; }
                     }
                 }
             }
@@ -872,62 +952,6 @@ public class Analysis {
         }
     }
 
-    private boolean isChange(List<TACTerm> terms, Variable source, Variable target) {
-        boolean change = false;
-        for (TACTerm termChange: terms) {
-            if (termChange.isDeleted())
-                continue;
-            if (termChange.getOps().equals("PHI")) {
-                Set<Integer> removes = new HashSet<>();
-                for (int i = 0; i < termChange.getDsts().size(); i++) {
-                    if (termChange.getDsts().get(i).equals(source)) {
-                        for (int j = 0; j < termChange.getDsts().size(); j++) {
-                            if (j == i)
-                                continue;
-                            if (termChange.getDsts().get(j).equals(target))
-                                removes.add(i);
-                        }
-                        if (termChange.getSrc().getName().equals(target.getName()) && termChange.getLineCount() == target.getIndex())
-                            removes.add(i);
-
-                        termChange.getDsts().set(i, target);
-                        change = true;
-                    }
-                }
-                List<Variable> dsts = new ArrayList<>();
-                List<CFGBlock> phiSources = new ArrayList<>();
-                for (int i = 0; i < termChange.getDsts().size(); i++) {
-                    if (!removes.contains(i)) {
-                        dsts.add(termChange.getDsts().get(i));
-                        phiSources.add(termChange.getPhiSources().get(i));
-                    }
-                }
-                termChange.setDsts(dsts);
-                termChange.setPhiSources(phiSources);
-
-            } else if (termChange.getOps().equals("CALL")) {
-                List<Variable> dsts = termChange.getDsts();
-                for (int i = 0; i < dsts.size(); i++) {
-                    if (dsts.get(i).equals(source)) {
-                        dsts.set(i, target);
-                        change = true;
-                    }
-                }
-            } else {
-                if (termChange.getSrc() != null && termChange.getSrc().equals(source)) {
-                    termChange.setSrc(target);
-                    change = true;
-                }
-
-                if (termChange.getDst() != null && termChange.getDst().equals(source)) {
-                    termChange.setDst(target);
-                    change = true;
-                }
-            }
-        }
-        return change;
-    }
-
 
     private boolean DFS(CFGBlock block, LocalOptimization localOptimization) {
         block.setVisited(true);
@@ -946,19 +970,26 @@ public class Analysis {
 
     public void livenessAnalysis() {
         reset();
-        Liveness liveness = new Liveness();;
+        this.liveVariables = new HashMap<>();
         for (CFGBlock exitBlock: exitBlocks) {
-            while(ReverseBFS(exitBlock, liveness)) {
-                reset();
+            // numbered per function
+            Liveness liveness = new Liveness();
+            solve(exitBlock, liveness);
+            for (CFGBlock block : liveness.blocks) {
+                liveVariables.put(block, liveness);
             }
-            reset();
         }
-        this.entriesLiveVariables = liveness.getEntries();
-        this.exitsLiveVariables = liveness.getExits();
     }
 
-    public Map<TACTerm, Set<LiveVariable>> getEntriesLiveVariables() {
-        return entriesLiveVariables;
+    /**
+     * Hands visitor each live term of block, last term first, with the variables live into it.
+     * The sets are made one at a time from the live out set livenessAnalysis kept for the block,
+     * blocks it did not reach are skipped.
+     */
+    public void walkEntriesLiveVariables(CFGBlock block, BiConsumer<TACTerm, Set<Variable>> visitor) {
+        Liveness liveness = liveVariables.get(block);
+        if (liveness != null)
+            liveness.walkEntries(block, visitor);
     }
 
 }
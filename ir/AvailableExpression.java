@@ -4,11 +4,11 @@ import java.util.*;
 
 public class AvailableExpression {
     private final int lineCount;
-    private final String ops;
+    private final TacOp ops;
     private final Variable src;
     private final Variable dst;
 
-    public AvailableExpression(int lineCount, String ops, Variable src, Variable dst) {
+    public AvailableExpression(int lineCount, TacOp ops, Variable src, Variable dst) {
         this.lineCount = lineCount;
         this.ops = ops;
         this.src = src;
@@ -19,7 +19,7 @@ public class AvailableExpression {
         return lineCount;
     }
 
-    public String getOps() {
+    public TacOp getOps() {
         return ops;
     }
 
@@ -36,12 +36,13 @@ public class AvailableExpression {
         if (this == o) return true;
         if (!(o instanceof AvailableExpression)) return false;
         AvailableExpression that = (AvailableExpression) o;
-        return getOps().equals(that.getOps()) && getSrc().equals(that.getSrc()) && getDst().equals(that.getDst());
+        return getOps() == that.getOps() && getSrc().equals(that.getSrc()) && getDst().equals(that.getDst());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getOps(), getSrc(), getDst());
+        // by name: an enum's own hashCode changes from run to run, and the passes iterate these sets
+        return Objects.hash(getOps().name(), getSrc(), getDst());
     }
 
     @Override
@@ -0,0 +1,64 @@
+package ir;
+
+/**
+ * Word operations on long[] bitsets, the sets of the dataflow analyses.
+ * Element i is bit i % 64 of word i / 64, sets of one analysis share the same length.
+ */
+final class Bits {
+
+    private Bits() {
+    }
+
+    static long[] of(int size) {
+        return new long[(size + 63) >>> 6];
+    }
+
+    static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & 1L << i) != 0;
+    }
+
+    static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    static void clear(long[] bits, int i) {
+        bits[i >>> 6] &= ~(1L << i);
+    }
+
+    // union into bits
+    static void or(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] |= other[i];
+        }
+    }
+
+    // intersection into bits
+    static void and(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] &= other[i];
+        }
+    }
+
+    // difference into bits
+    static void andNot(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] &= ~other[i];
+        }
+    }
+
+    // first element >= from, -1 if there is none
+    static int next(long[] bits, int from) {
+        int i = from >>> 6;
+        if (i >= bits.length) {
+            return -1;
+        }
+        long word = bits[i] & -1L << from;
+        while (word == 0) {
+            if (++i == bits.length) {
+                return -1;
+            }
+            word = bits[i];
+        }
+        return i << 6 | Long.numberOfTrailingZeros(word);
+    }
+}
@@ -49,6 +49,17 @@ public class CFGBlock {
         blockType = BlockType.COMMON;
     }
 
+    // move a block lowered on its own behind offset blocks, children are still indices
+    public void rebase(int offset) {
+        blockIndex += offset;
+        children.replaceAll(child -> child + offset);
+        Map<Integer, String> rebased = new HashMap<>();
+        for (Map.Entry<Integer, String> label : labels.entrySet()) {
+            rebased.put(label.getKey() + offset, label.getValue());
+        }
+        labels = rebased;
+    }
+
     public BlockType getBlockType() {
         return blockType;
     }
@@ -160,7 +171,7 @@ public class CFGBlock {
     public List<CFGBlock> getFuncCallBlocks() {
         List<CFGBlock> funcCalls = new ArrayList<>();
         for (TACTerm term : terms) {
-            if (term.getOps().equals("CALL")) {
+            if (term.getOps() == TacOp.CALL) {
                 assert (term.getFuncCall() != null) : "The function block " + term.getSrc() + " is not exist";
                 funcCalls.add(term.getFuncCall());
             }
@@ -173,7 +184,7 @@ public class CFGBlock {
         for (TACTerm term : terms) {
             if (term.isDeleted())
                 continue;
-            if (term.getOps().equals("CALL")) {
+            if (term.getOps() == TacOp.CALL) {
                 assert (term.getFuncCall() != null) : "The function block " + term.getSrc() + " is not exist";
                 connections.append("BB").append(blockIndex).append(":").append(term.getLineCount()).append("-> BB").append(term.getFuncCall().getBlockIndex()).append("[label=\"call\",color=\"red\"];\n");
             }
@@ -0,0 +1,119 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * Def-use chains of the SSA values (named variables and temporaries) of a program,
+ * the terms that read each value, indexed by Variable.getKey().
+ * A chain may still hold a term that stopped using the value or was deleted, it never
+ * misses one that uses it: whoever hands a term a new operand records it with addUse.
+ */
+class DefUse {
+    private final List<List<TACTerm>> users;
+
+    DefUse(List<TACTerm> terms) {
+        users = new ArrayList<>();
+        for (TACTerm term : terms) {
+            if (term.isDeleted())
+                continue;
+            addUse(term, term.getSrc());
+            addUse(term, term.getDst());
+            if (term.getDsts() != null) {
+                for (Variable variable : term.getDsts()) {
+                    addUse(term, variable);
+                }
+            }
+        }
+    }
+
+    void addUse(TACTerm term, Variable variable) {
+        if (variable == null || !(variable.isNamed() || variable.isTemporary()))
+            return;
+        List<TACTerm> chain = getChain(variable);
+        // a term reading a value twice is recorded once when its operands are added together
+        if (chain.isEmpty() || chain.get(chain.size() - 1) != term)
+            chain.add(term);
+    }
+
+    private List<TACTerm> getChain(Variable variable) {
+        while (users.size() <= variable.getKey()) {
+            users.add(null);
+        }
+        List<TACTerm> chain = users.get(variable.getKey());
+        if (chain == null) {
+            chain = new ArrayList<>();
+            users.set(variable.getKey(), chain);
+        }
+        return chain;
+    }
+
+    /**
+     * Replaces every use of source by target, in a PHI the operand is dropped when target
+     * already comes from another predecessor or is the PHI itself.
+     * @return whether any term changed
+     */
+    boolean replaceAllUsesWith(Variable source, Variable target) {
+        if (source.getKey() >= users.size() || users.get(source.getKey()) == null)
+            return false;
+        List<TACTerm> chain = users.get(source.getKey());
+        users.set(source.getKey(), null);
+        boolean change = false;
+        for (TACTerm termChange : chain) {
+            if (termChange.isDeleted())
+                continue;
+            boolean termChanged = false;
+            if (termChange.getOps() == TacOp.PHI) {
+                Set<Integer> removes = new HashSet<>();
+                for (int i = 0; i < termChange.getDsts().size(); i++) {
+                    if (termChange.getDsts().get(i).equals(source)) {
+                        for (int j = 0; j < termChange.getDsts().size(); j++) {
+                            if (j == i)
+                                continue;
+                            if (termChange.getDsts().get(j).equals(target))
+                                removes.add(i);
+                        }
+                        if (termChange.getSrc().getName().equals(target.getName()) && termChange.getLineCount() == target.getIndex())
+                            removes.add(i);
+
+                        termChange.getDsts().set(i, target);
+                        termChanged = true;
+                    }
+                }
+                List<Variable> dsts = new ArrayList<>();
+                List<CFGBlock> phiSources = new ArrayList<>();
+                for (int i = 0; i < termChange.getDsts().size(); i++) {
+                    if (!removes.contains(i)) {
+                        dsts.add(termChange.getDsts().get(i));
+                        phiSources.add(termChange.getPhiSources().get(i));
+                    }
+                }
+                termChange.setDsts(dsts);
+                termChange.setPhiSources(phiSources);
+
+            } else if (termChange.getOps() == TacOp.CALL) {
+                List<Variable> dsts = termChange.getDsts();
+                for (int i = 0; i < dsts.size(); i++) {
+                    if (dsts.get(i).equals(source)) {
+                        dsts.set(i, target);
+                        termChanged = true;
+                    }
+                }
+            } else {
+                if (termChange.getSrc() != null && termChange.getSrc().equals(source)) {
+                    termChange.setSrc(target);
+                    termChanged = true;
+                }
+
+                if (termChange.getDst() != null && termChange.getDst().equals(source)) {
+                    termChange.setDst(target);
+                    termChanged = true;
+                }
+            }
+            if (termChanged) {
+                addUse(termChange, target);
+                change = true;
+            }
+        }
+        return change;
+    }
+}
@@ -8,8 +8,10 @@ public class FunctionSymbol {
     private String functionName;
     private List<String> variables;
     private List<Type> types;
+    private Map<String, Type> variable2type;
 
     private List<String> params; // must be Type.INT
+    private Set<String> paramSet;
 
     private Type functionType;
 
@@ -27,9 +29,11 @@ public class FunctionSymbol {
         functionType = type;
         functionName = name;
         params = parameters;
+        paramSet = new HashSet<>(parameters);
         entryBlockID = id;
         variables = new ArrayList<>();
         types = new ArrayList<>();
+        variable2type = new HashMap<>();
         returnTypes = new ArrayList<>();
         arrayParamMap = new HashMap<>();
 
@@ -40,18 +44,30 @@ public class FunctionSymbol {
     }
 
     public void setEntryBlockID(int entryBlockID) {
+        int from = this.entryBlockID;
         this.entryBlockID = entryBlockID;
+        if (symbolTable != null && from != entryBlockID) {
+            symbolTable.moveEntryBlock(this, from);
+        }
     }
 
     public void insertLocal(String name, Type type) {
-        for (int i = 0; i < variables.size(); i++) {
-            assert (!variables.get(i).equals(name)) : "Variable " + name + " redefine";
-        }
-        for (int i = 0; i < params.size(); i++) {
-            assert (!params.get(i).equals(name)) : "Variable" + name + " is conflicted with params";
-        }
+        assert (!variable2type.containsKey(name)) : "Variable " + name + " redefine";
+        assert (!paramSet.contains(name)) : "Variable" + name + " is conflicted with params";
         this.variables.add(name);
         this.types.add(type);
+        this.variable2type.put(name, type);
+    }
+
+    // forget what lowering the body declared, to lower it once more
+    public void clearBody() {
+        variables.clear();
+        types.clear();
+        variable2type.clear();
+        returnTypes.clear();
+        arrayParamMap.clear();
+        realParams = null;
+        realGlobals = null;
     }
 
     public void insertReturnType(Type type) {
@@ -97,18 +113,11 @@ public class FunctionSymbol {
     }
 
     public Type lookupType(String name) {
-        for (int i = 0; i < variables.size(); i++) {
-            if (variables.get(i).equals(name)) {
-                return types.get(i);
-            }
+        Type type = variable2type.get(name);
+        if (type != null) {
+            return type;
         }
-
-        for (int i = 0; i < params.size(); i++) {
-            if (params.get(i).equals(name)) {
-                return Type.INT;
-            }
-        }
-        return null;
+        return paramSet.contains(name) ? Type.INT : null;
     }
 
     public List<Integer> lookupArrayParams(String ident) {
@@ -119,7 +128,7 @@ public class FunctionSymbol {
     public List<String> getRealParams() {
         if (realParams == null) {
             realParams = new ArrayList<>(params);
-            realParams.removeAll(variables);
+            realParams.removeAll(variable2type.keySet());
         }
         return realParams;
     }
@@ -127,7 +136,7 @@ public class FunctionSymbol {
     public List<Boolean> getParamRealIndices() {
         List<Boolean> indices = new ArrayList<>();
         for (int i = 0; i < params.size(); i++) {
-            if (variables.contains(params.get(i))) {
+            if (variable2type.containsKey(params.get(i))) {
                 // shadow
                 indices.add(false);
             } else {
@@ -140,12 +149,21 @@ public class FunctionSymbol {
     public List<String> getRealGlobalVariables() {
         if (realGlobals == null) {
             realGlobals = new ArrayList<>(symbolTable.getGlobalVariables());
-            realGlobals.removeAll(params);
-            realGlobals.removeAll(variables);
+            realGlobals.removeAll(paramSet);
+            realGlobals.removeAll(variable2type.keySet());
         }
         return realGlobals;
     }
 
+    // a global neither a param nor a local shadows
+    public boolean isRealGlobal(String name) {
+        return symbolTable.isGlobal(name) && !paramSet.contains(name) && !variable2type.containsKey(name);
+    }
+
+    public boolean isRealParam(String name) {
+        return paramSet.contains(name) && !variable2type.containsKey(name);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,6 +1,8 @@
 package ir;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.Stack;
@@ -8,6 +10,13 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class RegisterAllocation {
+    // nodes are tried in this order, so ties fall by variable and not by how the graph was built
+    private static final Comparator<RegisterGraphNode> ORDER = Comparator
+            .comparingInt((RegisterGraphNode node) -> node.getVariable().getKind())
+            .thenComparing(node -> node.getVariable().isNamed() ? node.getVariable().getName() : "")
+            .thenComparingInt(node -> node.getVariable().getId())
+            .thenComparingInt(node -> node.getVariable().getIndex());
+
     private int registerNumber;
     private Stack<RegisterGraphNode> stack;
 
@@ -16,7 +25,9 @@ public class RegisterAllocation {
         stack = new Stack<>();
     }
 
-    public void ChaitinBrigg(Set<RegisterGraphNode> nodes) {
+    public void ChaitinBrigg(Set<RegisterGraphNode> graph) {
+        List<RegisterGraphNode> nodes = new ArrayList<>(graph);
+        nodes.sort(ORDER);
         stack.clear();
         while (stack.size() < nodes.size()) {
             int n_max = -1;
@@ -3,14 +3,14 @@ package ir;
 import java.util.*;
 
 public class RegisterGraphNode {
-    private LiveVariable variable;
+    private Variable variable;
     private Set<RegisterGraphNode> neighbors;
     private boolean deleted;
     private boolean troublesome;
     private boolean spilled;
     private Integer color;
 
-    public RegisterGraphNode(LiveVariable variable) {
+    public RegisterGraphNode(Variable variable) {
         this.variable = variable;
         this.neighbors = new HashSet<>();
         this.deleted = false;
@@ -19,7 +19,7 @@ public class RegisterGraphNode {
         this.color = -1;
     }
 
-    public LiveVariable getVariable() {
+    public Variable getVariable() {
         return variable;
     }
 
@@ -7,10 +7,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 
-import static ir.TACTerm.insertTerms;
-
 /**
  * @GlobalVariables store should be inserted before calling and function return
+ * @LineCount inserted terms get fresh ids, the terms are numbered by position once SSA is built
  */
 
 public class SSA {
@@ -22,19 +21,24 @@ public class SSA {
     private List<CFGBlock> rootBlocks;
     private List<CFGBlock> exitBlocks;
     private Queue<CFGBlock> queue;
+    private int lastId;
+    private Variable.Pool pool;
 
     public SSA(SymbolTable symbolTable, List<TACTerm> terms, List<CFGBlock> cfgBlocks, List<CFGBlock> rootBlocks, List<CFGBlock> exitBlocks) throws ErrorMessage {
         cfgForest = new ArrayList<>();
         cfgReverseForest = new ArrayList<>();
         this.symbolTable = symbolTable;
+        this.pool = symbolTable.getPool();
         this.terms = terms;
         this.cfgBlocks = cfgBlocks;
         this.rootBlocks = rootBlocks;
         this.exitBlocks = exitBlocks;
+        this.lastId = terms.size();
         computeForest();
         computeDOMTree();
         computeReverseDOMTree();
         computePhi();
+        numberTerms();
     }
 
     private void reset() {
@@ -53,16 +57,12 @@ public class SSA {
                 candidates.addAll(globals);
             } else {
                 FunctionSymbol functionSymbol = symbolTable.lookupFunctionSymbol(root.getBlockIndex());
-                List<String> globals = new ArrayList<>(symbolTable.getGlobalVariables());
-                List<String> params = new ArrayList<>(functionSymbol.getParams());
-                List<String> variables = functionSymbol.getVariables();
-                globals.removeAll(params); // shadow
-                globals.removeAll(variables); // shadow
+                // params shadow globals, locals shadow both
+                List<String> globals = functionSymbol.getRealGlobalVariables();
                 globalSize = globals.size();
-                params.removeAll(variables); // shadow
                 candidates.addAll(globals);
-                candidates.addAll(params);
-                candidates.addAll(variables);
+                candidates.addAll(functionSymbol.getRealParams());
+                candidates.addAll(functionSymbol.getVariables());
             }
 
             reset();
@@ -81,22 +81,20 @@ public class SSA {
                 // insert PHI
                 for (CFGBlock cfgBlock: block.getCfgChildren()) {
                     TACTerm firstTerm = cfgBlock.getTerms().get(0);
-                    int firstLineCount = firstTerm.getLineCount();
-                    if (firstTerm.getOps().equals("PHI")) {
+                    if (firstTerm.getOps() == TacOp.PHI) {
                         for (int j = 0; j < candidates.size(); j++) {
-                            Variable dstVariable = new Variable(candidates.get(j), 0);
+                            Variable dstVariable = pool.of(candidates.get(j), 0);
                             cfgBlock.getTerms().get(j).insertDst(dstVariable);
                             cfgBlock.getTerms().get(j).addPHISource(block);
                         }
                     } else {
                         List<TACTerm> phiTerms = new ArrayList<>();
                         for (int j = 0; j < candidates.size(); j++) {
-                            phiTerms.add(new TACTerm(firstLineCount + j, "PHI", candidates.get(j), new ArrayList<>(), Type.VOID));
+                            phiTerms.add(new TACTerm(++lastId, TacOp.PHI, pool.of(candidates.get(j), 0), new ArrayList<>(), Type.VOID));
                         }
-                        insertTerms(firstLineCount - 1, terms, phiTerms);
                         cfgBlock.getTerms().addAll(0, phiTerms);
                         for (int j = 0; j < candidates.size(); j++) {
-                            Variable dstVariable = new Variable(candidates.get(j), 0);
+                            Variable dstVariable = pool.of(candidates.get(j), 0);
                             cfgBlock.getTerms().get(j).insertDst(dstVariable);
                             cfgBlock.getTerms().get(j).addPHISource(block);
                         }
@@ -121,10 +119,9 @@ public class SSA {
 
                 List<Integer> indices = new ArrayList<>();
                 // initial phi indices
-                int firstLineCount = block.getTerms().get(0).getLineCount();
                 if (!block.equals(root)) {
                     for (int j = 0; j < candidates.size(); j++) {
-                        indices.add(firstLineCount + j);
+                        indices.add(block.getTerms().get(j).getLineCount());
                     }
                 } else {
                     for (int j = 0; j < candidates.size(); j++) {
@@ -134,12 +131,12 @@ public class SSA {
 
                 List<TACTerm> blockTerms = block.getTerms();
                 for (TACTerm term: blockTerms) {
-                    if (term.getOps().equals("CALL")) {
+                    if (term.getOps() == TacOp.CALL) {
                         if (term.getDsts().size() > 0) {
                             List<Variable> dsts = term.getDsts();
                             for (int j = 0; j < dsts.size(); j++) {
                                 for (int k = 0; k < candidates.size(); k++) {
-                                    if (candidates.get(k).equals(dsts.get(j).getName())) {
+                                    if (dsts.get(j).isNamed() && candidates.get(k).equals(dsts.get(j).getName())) {
                                         term.setDstsIndex(j, indices.get(k));
                                     }
                                 }
@@ -148,17 +145,17 @@ public class SSA {
 
                     } else {
                         for (int j = 0; j < candidates.size(); j++) {
-                            if (term.getSrc() != null && candidates.get(j).equals(term.getSrc().getName())) {
-                                if (term.getOps().equals("LG")) {
+                            if (term.getSrc() != null && term.getSrc().isNamed() && candidates.get(j).equals(term.getSrc().getName())) {
+                                if (term.getOps() == TacOp.LG) {
                                     indices.set(j, term.getLineCount());
                                 }
-                                term.getSrc().setIndex(indices.get(j));
+                                term.setSrc(term.getSrc().withIndex(indices.get(j)));
                             }
-                            if (term.getDst() != null && candidates.get(j).equals(term.getDst().getName())) {
-                                if (term.getOps().equals("MOVE")) {
+                            if (term.getDst() != null && term.getDst().isNamed() && candidates.get(j).equals(term.getDst().getName())) {
+                                if (term.getOps() == TacOp.MOVE) {
                                     indices.set(j, term.getLineCount());
                                 }
-                                term.getDst().setIndex(indices.get(j));
+                                term.setDst(term.getDst().withIndex(indices.get(j)));
                             }
                         }
                     }
@@ -169,7 +166,7 @@ public class SSA {
                         TACTerm phiTerm = cfgBlock.getTerms().get(j);
                         for (int k = 0; k < phiTerm.getDsts().size(); k++) {
                             if (phiTerm.getPhiSources().get(k).equals(block)) {
-                                phiTerm.getDsts().get(k).setIndex(indices.get(j));
+                                phiTerm.getDsts().set(k, phiTerm.getDsts().get(k).withIndex(indices.get(j)));
                             }
                         }
                     }
@@ -191,20 +188,18 @@ public class SSA {
     private void DFSInsertLoad(CFGBlock block, List<String> candidates, int globalSize) {
         block.setVisited(true);
 
-        int index = 0;
         List<TACTerm> tacTerms = block.getTerms();
-        while (index < tacTerms.size()) {
-            if (tacTerms.get(index).getOps().equals("CALL")) {
-                List<TACTerm> loadTerms = new ArrayList<>();
+        List<TACTerm> loaded = new ArrayList<>(tacTerms.size());
+        for (TACTerm term : tacTerms) {
+            loaded.add(term);
+            if (term.getOps() == TacOp.CALL) {
                 for (int j = 0; j < globalSize; j++) {
-                    loadTerms.add(new TACTerm(tacTerms.get(index).getLineCount() + j + 1, "LG", new Variable(candidates.get(j), 0), null, Type.VOID, candidates.get(j)));
+                    loaded.add(new TACTerm(++lastId, TacOp.LG, pool.of(candidates.get(j), 0), null, Type.VOID, candidates.get(j)));
                 }
-                insertTerms(tacTerms.get(index).getLineCount(), terms, loadTerms);
-                tacTerms.addAll(index + 1, loadTerms);
-                index = index + globalSize;
             }
-            index++;
         }
+        tacTerms.clear();
+        tacTerms.addAll(loaded);
 
         for (CFGBlock cfgBlock : block.getCfgChildren()) {
             if (!cfgBlock.isVisited()) {
@@ -216,23 +211,21 @@ public class SSA {
     private void DFSInsertStore(CFGBlock block, List<String> candidates, int globalSize) {
         block.setVisited(true);
 
-        int index = 0;
         List<TACTerm> tacTerms = block.getTerms();
-        while (index < tacTerms.size()) {
-            if (tacTerms.get(index).getOps().equals("MOVE")) {
+        List<TACTerm> stored = new ArrayList<>(tacTerms.size());
+        for (TACTerm term : tacTerms) {
+            stored.add(term);
+            if (term.getOps() == TacOp.MOVE) {
                 for (int j = 0; j < globalSize; j++) {
-                    if (candidates.get(j).equals(tacTerms.get(index).getDst().getName())) {
-                        List<TACTerm> storeTerms = new ArrayList<>();
-                        storeTerms.add(new TACTerm(tacTerms.get(index).getLineCount() + 1, "SG", new Variable(candidates.get(j), 0), null, Type.VOID, candidates.get(j)));
-                        insertTerms(tacTerms.get(index).getLineCount(), terms, storeTerms);
-                        tacTerms.addAll(index + 1, storeTerms);
-                        index++;
+                    if (candidates.get(j).equals(term.getDst().getName())) {
+                        stored.add(new TACTerm(++lastId, TacOp.SG, pool.of(candidates.get(j), 0), null, Type.VOID, candidates.get(j)));
                         break;
                     }
                 }
             }
-            index++;
         }
+        tacTerms.clear();
+        tacTerms.addAll(stored);
 
         for (CFGBlock cfgBlock : block.getCfgChildren()) {
             if (!cfgBlock.isVisited()) {
@@ -241,6 +234,22 @@ public class SSA {
         }
     }
 
+    // blocks hold the terms in program order, so the program is their concatenation
+    private void numberTerms() {
+        int[] lineOf = new int[lastId + 1];
+        terms.clear();
+        for (CFGBlock block : cfgBlocks) {
+            for (TACTerm term : block.getTerms()) {
+                terms.add(term);
+                lineOf[term.getLineCount()] = terms.size();
+            }
+        }
+        assert terms.size() == lastId : "Terms outside the blocks";
+        for (TACTerm term : terms) {
+            term.renumber(lineOf);
+        }
+    }
+
     private void computeForest() {
         reset();
         for (int i = 0; i < rootBlocks.size(); i++) {
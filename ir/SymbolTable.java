@@ -10,7 +10,11 @@ public class SymbolTable {
     private List<Type> globalVariableTypes;
     private Map<String, Type> variable2type;
     private List<FunctionSymbol> functionSymbols;
+    private Map<String, List<Integer>> functionIndex; // name -> positions in functionSymbols, one per arity
+    private Map<Integer, FunctionSymbol> blockIndex; // entry block -> function, kept up to date by setEntryBlockID
+    private int visible; // a fork sees the functions declared before its own
     private Map<String, List<Integer>> arrayParamMap;
+    private Variable.Pool pool; // the Variables of this compilation
 
     public FunctionSymbol current;
 
@@ -19,11 +23,36 @@ public class SymbolTable {
         globalVariableTypes = new ArrayList<>();
         variable2type = new HashMap<>();
         functionSymbols = new ArrayList<>();
+        functionIndex = new HashMap<>();
+        blockIndex = new HashMap<>();
+        visible = Integer.MAX_VALUE;
         arrayParamMap = new HashMap<>();
+        pool = new Variable.Pool();
+    }
+
+    // a read only table for lowering functions.get(count - 1) on its own: shares the globals and sees the first count functions,
+    // fork once every function is declared, nothing may be inserted while forks are in use
+    public SymbolTable fork(int count) {
+        SymbolTable fork = new SymbolTable();
+        fork.globalVariables = Collections.unmodifiableList(globalVariables);
+        fork.globalVariableTypes = Collections.unmodifiableList(globalVariableTypes);
+        fork.variable2type = Collections.unmodifiableMap(variable2type);
+        fork.arrayParamMap = Collections.unmodifiableMap(arrayParamMap);
+        fork.functionSymbols = Collections.unmodifiableList(functionSymbols);
+        fork.functionIndex = Collections.unmodifiableMap(functionIndex);
+        fork.blockIndex = Collections.unmodifiableMap(blockIndex);
+        fork.pool = pool;
+        fork.visible = count;
+        fork.current = functionSymbols.get(count - 1);
+        return fork;
+    }
+
+    public Variable.Pool getPool() {
+        return pool;
     }
 
     public List<FunctionSymbol> getFunctionSymbols() {
-        return functionSymbols;
+        return functionSymbols.subList(0, Math.min(visible, functionSymbols.size()));
     }
 
     public List<String> getGlobalVariables() {
@@ -31,10 +60,25 @@ public class SymbolTable {
     }
 
     public void insertFunctionSymbol(FunctionSymbol scope) {
-        for (FunctionSymbol functionSymbol : functionSymbols) {
-            assert (!functionSymbol.isEqual(scope.getFunctionName(), scope.getParams().size())) : "Function " + scope.getFunctionName() + " redefine";
-        }
+        assert (find(scope.getFunctionName(), scope.getParams().size()) == null) : "Function " + scope.getFunctionName() + " redefine";
+        functionIndex.computeIfAbsent(scope.getFunctionName(), name -> new ArrayList<>(1)).add(functionSymbols.size());
         functionSymbols.add(scope);
+        blockIndex.putIfAbsent(scope.getEntryBlockID(), scope);
+    }
+
+    // functionSymbol moved from the entry block from, only called on the table it was declared in
+    void moveEntryBlock(FunctionSymbol functionSymbol, int from) {
+        if (blockIndex.get(from) == functionSymbol) {
+            blockIndex.remove(from);
+            // functions are declared at the block open at the time, another one may still start there
+            for (FunctionSymbol symbol : functionSymbols) {
+                if (symbol.getEntryBlockID() == from) {
+                    blockIndex.put(from, symbol);
+                    break;
+                }
+            }
+        }
+        blockIndex.putIfAbsent(functionSymbol.getEntryBlockID(), functionSymbol);
     }
 
     public Type lookupType(String name) throws ErrorMessage {
@@ -44,29 +88,38 @@ public class SymbolTable {
                 return type;
             }
         }
-        for (int i = 0; i < globalVariables.size(); i++) {
-            if (globalVariables.get(i).equals(name)) {
-                return globalVariableTypes.get(i);
-            }
+        Type type = variable2type.get(name);
+        if (type != null) {
+            return type;
         }
         throw new ErrorMessage("Type Checking", "Variable " + name,"The variable " + name + " does not exist");
     }
 
     public FunctionSymbol lookupFunctionSymbol(String name, int size) throws ErrorMessage {
-        for (FunctionSymbol functionSymbol : functionSymbols) {
-            if (functionSymbol.isEqual(name, size)) {
-                return functionSymbol;
-            }
+        FunctionSymbol functionSymbol = find(name, size);
+        if (functionSymbol != null) {
+            return functionSymbol;
         }
         throw new ErrorMessage("Type Checking", "Function " + name,"Calling the non-existed function " + name + " with parameter size " + size);
     }
 
-    public FunctionSymbol lookupFunctionSymbol(int blockID) throws ErrorMessage {
-        for (FunctionSymbol functionSymbol : functionSymbols) {
-            if (functionSymbol.getEntryBlockID() == blockID) {
-                return functionSymbol;
+    private FunctionSymbol find(String name, int size) {
+        List<Integer> overloads = functionIndex.get(name);
+        if (overloads != null) {
+            for (int position : overloads) {
+                if (position < visible && functionSymbols.get(position).isEqual(name, size)) {
+                    return functionSymbols.get(position);
+                }
             }
         }
+        return null;
+    }
+
+    public FunctionSymbol lookupFunctionSymbol(int blockID) throws ErrorMessage {
+        FunctionSymbol functionSymbol = blockIndex.get(blockID);
+        if (functionSymbol != null) {
+            return functionSymbol;
+        }
         throw new ErrorMessage("Type Checking", "BlockID " + blockID,"Calling the non-existed block " + blockID);
     }
 
@@ -84,14 +137,16 @@ public class SymbolTable {
     }
 
     public void insertGlobal(String name, Type type) {
-        for (String globalVariable : globalVariables) {
-            assert (!globalVariable.equals(name)) : "Variable " + name + " redefine";
-        }
+        assert (!variable2type.containsKey(name)) : "Variable " + name + " redefine";
         this.globalVariables.add(name);
         this.globalVariableTypes.add(type);
         this.variable2type.put(name, type);
     }
 
+    public boolean isGlobal(String name) {
+        return variable2type.containsKey(name);
+    }
+
     public Map<String, Type> getVariable2type() {
         return variable2type;
     }
@@ -1,11 +1,10 @@
 package ir;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class TACTerm {
     private int lineCount;
-    private String ops;
+    private TacOp ops;
     private Variable src;
     private Variable dst;
     private List<Variable> dsts;
@@ -34,22 +33,7 @@ public class TACTerm {
     public TACTerm nextTerm = null;
     public int offset = 0;
 
-    public TACTerm(int lineCount, String ops, String src, String dst, Type type) {
-        this.lineCount = lineCount;
-        this.ops = ops;
-        this.src = src == null ? null : new Variable(src, 0);
-        this.dst = dst == null ? null : new Variable(dst, 0);
-        this.derivedType = type;
-        this.deleted = false;
-        this.srcRegister = -1;
-        this.dstRegister = -1;
-        this.outputRegister = -1;
-
-        this.phiSources = new ArrayList<>();
-        this.movingArray = false;
-    }
-
-    public TACTerm(int lineCount, String ops, Variable src, Variable dst, Type type) {
+    public TACTerm(int lineCount, TacOp ops, Variable src, Variable dst, Type type) {
         this.lineCount = lineCount;
         this.ops = ops;
         this.src = src;
@@ -64,7 +48,7 @@ public class TACTerm {
         this.movingArray = false;
     }
 
-    public TACTerm(int lineCount, String ops, Variable src, Variable dst, Type type, String storeName) {
+    public TACTerm(int lineCount, TacOp ops, Variable src, Variable dst, Type type, String storeName) {
         this.lineCount = lineCount;
         this.ops = ops;
         this.src = src;
@@ -80,7 +64,7 @@ public class TACTerm {
         this.storeName = storeName;
     }
 
-    public TACTerm(int lineCount, String ops, Variable src, Variable dst, Type type, int uuid) {
+    public TACTerm(int lineCount, TacOp ops, Variable src, Variable dst, Type type, int uuid) {
         this.lineCount = lineCount;
         this.ops = ops;
         this.src = src;
@@ -98,11 +82,11 @@ public class TACTerm {
     }
 
 
-    public TACTerm(int lineCount, String ops, String src, List<String> dsts, Type type) {
+    public TACTerm(int lineCount, TacOp ops, Variable src, List<Variable> dsts, Type type) {
         this.lineCount = lineCount;
         this.ops = ops;
-        this.src = src == null ? null : new Variable(src, 0);
-        this.dsts = dsts == null ? new ArrayList<>() : dsts.stream().map(d -> new Variable(d, 0)).collect(Collectors.toList());
+        this.src = src;
+        this.dsts = dsts == null ? new ArrayList<>() : dsts;
         this.derivedType = type;
         this.deleted = false;
         this.srcRegister = -1;
@@ -155,7 +139,7 @@ public class TACTerm {
     }
 
     public void setDstsIndex(int index, int targetIndex) {
-        this.dsts.get(index).setIndex(targetIndex);
+        this.dsts.set(index, this.dsts.get(index).withIndex(targetIndex));
     }
 
     public Variable getSrc() {
@@ -182,7 +166,7 @@ public class TACTerm {
         this.lineCount = lineCount;
     }
 
-    public void setOps(String ops) {
+    public void setOps(TacOp ops) {
         this.ops = ops;
     }
 
@@ -194,7 +178,7 @@ public class TACTerm {
         return lineCount;
     }
 
-    public String getOps() {
+    public TacOp getOps() {
         return ops;
     }
 
@@ -210,29 +194,51 @@ public class TACTerm {
         this.funcCall = funcCall;
     }
 
-    public static void insertTerms(int index, List<TACTerm> terms, List<TACTerm> insertTerms) {
-        terms.addAll(index, insertTerms);
-        int size = insertTerms.size();
-        for (int i = index + size; i < terms.size(); i++) {
-            TACTerm termAfter = terms.get(i);
-            termAfter.setLineCount(i + 1);
-            if(termAfter.getSrc() != null && termAfter.getSrc().getName().charAt(0) == '(' && Integer.parseInt(termAfter.getSrc().getName(), 1, termAfter.getSrc().getName().length() - 1, 10) > index) {
-                termAfter.setSrc(new Variable("(" + (Integer.parseInt(termAfter.getSrc().getName(), 1, termAfter.getSrc().getName().length() - 1, 10) + size) + ")", 0));
-            }
-            if (termAfter.getOps().equals("CALL")) {
-                List<Variable> dsts = termAfter.getDsts();
-                for (int j = 0; j < dsts.size(); j++) {
-                    if (dsts.get(j).getName().charAt(0) == '(' && Integer.parseInt(dsts.get(j).getName(), 1, dsts.get(j).getName().length() - 1, 10) > index) {
-                        dsts.set(j, new Variable("(" + (Integer.parseInt(dsts.get(j).getName(), 1, dsts.get(j).getName().length() - 1, 10) + size) + ")", 0));
-                    }
-                }
-
-            } else {
-                if(termAfter.getDst() != null && terms.get(i).getDst().getName().charAt(0) == '(' && Integer.parseInt(termAfter.getDst().getName(), 1, termAfter.getDst().getName().length() - 1, 10) > index) {
-                    termAfter.setDst(new Variable("(" + (Integer.parseInt(termAfter.getDst().getName(), 1, termAfter.getDst().getName().length() - 1, 10) + size) + ")", 0));
-                }
-            }
+    // number the term by its position, operands follow the terms they refer to
+    public void renumber(int[] lineOf) {
+        lineCount = lineOf[lineCount];
+        src = renumber(src, lineOf);
+        dst = renumber(dst, lineOf);
+        if (dsts != null) {
+            dsts.replaceAll(variable -> renumber(variable, lineOf));
+        }
+    }
+
+    private static Variable renumber(Variable variable, int[] lineOf) {
+        if (variable == null) {
+            return null;
+        }
+        if (variable.isTemporary()) {
+            return variable.getPool().temporary(lineOf[variable.getId()]);
+        }
+        if (variable.isNamed() && variable.getIndex() > 0) {
+            // SSA indices are the lineCount of the defining term
+            return variable.withIndex(lineOf[variable.getIndex()]);
+        }
+        return variable;
+    }
+
+    // move a term lowered on its own behind lineOffset terms and blockOffset blocks
+    public void rebase(int lineOffset, int blockOffset) {
+        lineCount += lineOffset;
+        src = rebase(src, lineOffset, blockOffset);
+        dst = rebase(dst, lineOffset, blockOffset);
+        if (dsts != null) {
+            dsts.replaceAll(variable -> rebase(variable, lineOffset, blockOffset));
+        }
+    }
+
+    private static Variable rebase(Variable variable, int lineOffset, int blockOffset) {
+        if (variable == null) {
+            return null;
+        }
+        if (variable.isTemporary()) {
+            return variable.getPool().temporary(variable.getId() + lineOffset);
+        }
+        if (variable.isLabel()) {
+            return variable.getPool().label(variable.getId() + blockOffset);
         }
+        return variable;
     }
 
     public void setOutputRegister(int outputRegister) {
@@ -283,7 +289,7 @@ public class TACTerm {
     @Override
     public String toString() {
         StringBuilder output;
-        if (ops.equals("CALL")) {
+        if (ops == TacOp.CALL) {
             output = new StringBuilder("<" + lineCount + ">" + (isDeleted() ? "deleted-" : "") + lineCount +
                     (outputRegister >= 0 ? ("[R" + (outputRegister == 99 ? "MEM" : outputRegister + 1) + "]") : "") + ":" + ops + " " + (src == null ? "" : src.toString()));
             for (int i = 0; i < dsts.size(); i++) {
@@ -291,7 +297,7 @@ public class TACTerm {
                 if (dstsRegister.size() > 0)
                     output.append(dstsRegister.get(i) >= 0 ? ("[R" + (dstsRegister.get(i) == 99 ? "MEM" : dstsRegister.get(i) + 1) + "]") : "");
             }
-        } else if (ops.equals("PHI")) {
+        } else if (ops == TacOp.PHI) {
             output = new StringBuilder("<" + lineCount + ">" + (isDeleted() ? "deleted-" : "") + lineCount + ":" + ops + " ");
             for (Variable variable : dsts) {
                 output.append(" ").append(variable);
@@ -0,0 +1,62 @@
+package ir;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Operation of a TACTerm. The name is what the IR printouts show.
+ */
+public enum TacOp {
+    ADD,
+    ADDA,
+    SUB,
+    MUL,
+    DIV,
+    CMP,
+    LOAD,
+    STORE,
+    MOVE,
+    PHI,
+    BEQ,
+    BNE,
+    BLT,
+    BGE,
+    BGT,
+    BLE,
+    BRA,
+    CALL,
+    RET,
+    READ,
+    WRITE,
+    WRITENL,
+    LG, // load a global back after a call
+    SG; // store a global before a call
+
+    private static final Set<TacOp> BRANCHES = EnumSet.of(BEQ, BNE, BLT, BGE, BGT, BLE, BRA);
+    private static final Set<TacOp> ARITHMETICS = EnumSet.of(ADD, ADDA, SUB, MUL, DIV, CMP);
+    // terms that can be referenced as a temporary (lineCount)
+    private static final Set<TacOp> VALUES = EnumSet.of(ADD, ADDA, SUB, MUL, DIV, CMP, LOAD, READ, CALL);
+    // terms dead code elimination has to keep even if nothing reads their value
+    private static final Set<TacOp> SIDE_EFFECTS = EnumSet.of(STORE, BEQ, BNE, BLT, BGE, BGT, BLE, BRA, CALL, RET, WRITE, WRITENL, SG);
+    private static final Set<TacOp> COMMUTATIVES = EnumSet.of(ADD, MUL);
+
+    public boolean isBranch() {
+        return BRANCHES.contains(this);
+    }
+
+    public boolean isArithmetic() {
+        return ARITHMETICS.contains(this);
+    }
+
+    public boolean definesValue() {
+        return VALUES.contains(this);
+    }
+
+    public boolean hasSideEffects() {
+        return SIDE_EFFECTS.contains(this);
+    }
+
+    public boolean isCommutative() {
+        return COMMUTATIVES.contains(this);
+    }
+}
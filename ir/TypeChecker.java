@@ -2,21 +2,34 @@ package ir;
 
 import error.ErrorMessage;
 
-import java.util.*;
-
 public class TypeChecker {
-    private static Set<String> expressionSet = new HashSet<>(Arrays.asList("ADD", "SUB", "MUL", "DIV", "CMP"));
+    private final boolean detached;
 
-    private static Set<String> voidSet = new HashSet<>(Arrays.asList("BEQ", "BNE", "BLT", "BGE", "BGT", "BLE", "BRA", "READ", "WRITENL"));
+    public TypeChecker() {
+        this(false);
+    }
 
-    public Type expression(String ops, Type src, Type dst, int lineCount) throws ErrorMessage {
-        if (expressionSet.contains(ops)) {
-            assert (src == dst && src == Type.INT) : "Type checking failed with operation " + ops + ", source type " + src + ", target type " + dst + " at IR line " + lineCount;
-            return Type.INT;
-        } else if (voidSet.contains(ops)) {
-            if (ops.equals("READ"))
+    // a detached checker serves a function lowered on its own before its IR line numbers are known,
+    // a failed check is reported as an ErrorMessage so that the function is lowered again in place
+    public TypeChecker(boolean detached) {
+        this.detached = detached;
+    }
+
+    public Type expression(TacOp ops, Type src, Type dst, int lineCount) throws ErrorMessage {
+        switch (ops) {
+            case ADD, SUB, MUL, DIV, CMP -> {
+                if (detached && !(src == dst && src == Type.INT)) {
+                    throw new ErrorMessage("Type Checking", "INT operands", "Operation " + ops + " on " + src + " and " + dst);
+                }
+                assert (src == dst && src == Type.INT) : "Type checking failed with operation " + ops + ", source type " + src + ", target type " + dst + " at IR line " + lineCount;
+                return Type.INT;
+            }
+            case READ -> {
                 return Type.INT;
-            return Type.VOID;
+            }
+            case BEQ, BNE, BLT, BGE, BGT, BLE, BRA, WRITENL -> {
+                return Type.VOID;
+            }
         }
         throw new ErrorMessage("Type Checking", "Valid operation", "Unknown operation " + ops);
     }
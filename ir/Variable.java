@@ -1,53 +1,168 @@
 package ir;
 
-import java.util.Objects;
-
-import static parser.EBNFUtil.isNumeric;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * An operand of a TACTerm. Named variables carry an SSA index, the other kinds are plain ints:
+ * a temporary is the value of the term with that lineCount, a label the block with that index.
+ * Variables are interned in the Pool of their compilation, there is one instance per operand
+ * so they compare by identity, and each instance has a dense key for int indexed tables.
+ */
 public class Variable {
-    String name;
-    Integer index;
+    public static final int NAMED = 0;
+    public static final int TEMPORARY = 1;
+    public static final int CONSTANT = 2;
+    public static final int LABEL = 3;
+
+    /**
+     * The Variables of one compilation, owned by its SymbolTable. Keys count from 0 in each pool,
+     * so key indexed tables grow with the program at hand, and a process that compiles again and
+     * again keeps nothing of the programs before.
+     */
+    public static class Pool {
+        // the lowering threads intern concurrently
+        private final ConcurrentHashMap<String, Integer> names = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Long, Variable> variables = new ConcurrentHashMap<>();
+        private final AtomicInteger nameIds = new AtomicInteger();
+        private final AtomicInteger keys = new AtomicInteger();
+
+        public Variable of(String name, int index) {
+            int nameId = names.computeIfAbsent(name, n -> nameIds.getAndIncrement());
+            return variables.computeIfAbsent(pack((long) nameId << 2 | NAMED, index), k -> new Variable(this, NAMED, 0, name, index));
+        }
+
+        public Variable temporary(int lineCount) {
+            return intern(TEMPORARY, lineCount);
+        }
+
+        public Variable constant(int value) {
+            return intern(CONSTANT, value);
+        }
 
-    public Variable(String name, Integer index) {
+        public Variable label(int blockIndex) {
+            return intern(LABEL, blockIndex);
+        }
+
+        private Variable intern(int kind, int id) {
+            return variables.computeIfAbsent(pack(kind, id), k -> new Variable(this, kind, id, null, 0));
+        }
+    }
+
+    private final Pool pool;
+    private final int kind;
+    private final int id; // lineCount, constant value or block index, 0 for named variables
+    private String name; // printed form of the other kinds, made on demand
+    private final int index;
+    private final int hash;
+    private final int key;
+
+    private Variable(Pool pool, int kind, int id, String name, int index) {
+        this.pool = pool;
+        this.kind = kind;
+        this.id = id;
         this.name = name;
         this.index = index;
+        this.hash = 31 * (31 + (kind == NAMED ? name.hashCode() : printedHash(kind, id))) + index;
+        this.key = pool.keys.getAndIncrement();
     }
 
-    public String getName() {
-        return name;
+    private static long pack(long high, int low) {
+        return high << 32 | (low & 0xffffffffL);
     }
 
-    public Integer getIndex() {
-        return index;
+    // String.hashCode of the printed form, so hash ordered sets (and the register coloring) iterate as they did for strings
+    private static int printedHash(int kind, int id) {
+        int hash = kind == TEMPORARY ? '(' : kind == LABEL ? '[' : 0;
+        long value = id;
+        if (value < 0) {
+            hash = 31 * hash + '-';
+            value = -value;
+        }
+        long digit = 1;
+        while (digit * 10 <= value) {
+            digit *= 10;
+        }
+        for (; digit > 0; digit /= 10) {
+            hash = 31 * hash + (char) ('0' + value / digit % 10);
+        }
+        return kind == TEMPORARY ? 31 * hash + ')' : kind == LABEL ? 31 * hash + ']' : hash;
     }
 
-    public void setName(String name) {
-        this.name = name;
+    public int getKind() {
+        return kind;
     }
 
-    public void setIndex(Integer index) {
-        this.index = index;
+    public boolean isNamed() {
+        return kind == NAMED;
+    }
+
+    public boolean isTemporary() {
+        return kind == TEMPORARY;
+    }
+
+    public boolean isLabel() {
+        return kind == LABEL;
     }
 
     public boolean isNumber() {
-        return isNumeric(this.name);
+        return kind == CONSTANT;
+    }
+
+    public boolean isConstant(int value) {
+        return kind == CONSTANT && id == value;
+    }
+
+    // lineCount of a temporary or index of a label's block
+    public int getId() {
+        return id;
+    }
+
+    public int getValue() {
+        return id;
+    }
+
+    // dense number of the interned instance in its pool
+    public int getKey() {
+        return key;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public String getName() {
+        if (name == null) {
+            name = switch (kind) {
+                case TEMPORARY -> "(" + id + ")";
+                case LABEL -> "[" + id + "]";
+                default -> String.valueOf(id);
+            };
+        }
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    // the same named variable under another SSA index
+    public Variable withIndex(int index) {
+        return kind == NAMED ? pool.of(name, index) : this;
     }
 
     @Override
     public boolean equals(Object o) {
-        if (this == o) return true;
-        if (!(o instanceof Variable)) return false;
-        Variable variable = (Variable) o;
-        return getName().equals(variable.getName()) && getIndex().equals(variable.getIndex());
+        return this == o;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getName(), getIndex());
+        return hash;
     }
 
     @Override
     public String toString() {
-        return name + (index > 0 ? "_" + index : "");
+        return getName() + (index > 0 ? "_" + index : "");
     }
 }
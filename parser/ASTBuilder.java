@@ -0,0 +1,238 @@
+package parser;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+import static parser.ASTTreeNode.*;
+import static parser.EBNFUtil.*;
+
+/**
+ * Builds the ASTTreeNode of every production the parser completes. Each right hand side
+ * symbol leaves one value: matched terminals their token index, nonterminals their node,
+ * or a Chain while a closure is still being collected (in reverse, innermost first).
+ */
+public class ASTBuilder {
+
+    private interface Reduction {
+        Object reduce(ASTBuilder builder, int[] rhs, int base);
+    }
+
+    private static final class Chain {
+        private ASTTreeNode[] items = new ASTTreeNode[4];
+        private int[] ops = new int[4];
+        private int size = 0;
+
+        private Chain add(int op, ASTTreeNode item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                ops = Arrays.copyOf(ops, size * 2);
+            }
+            ops[size] = op;
+            items[size++] = item;
+            return this;
+        }
+    }
+
+    private static final Reduction[] REDUCTIONS = new Reduction[nonTerminalMap.size()];
+    private static final ASTTreeNode[] TOKENS = new ASTTreeNode[256];
+
+    private static void on(String nonTerminal, Reduction reduction) {
+        REDUCTIONS[nonTerminalMap.get(nonTerminal)] = reduction;
+    }
+
+    static {
+        for (int token = 0; token < TOKENS.length; token++) {
+            TOKENS[token] = new ASTTreeNode(TOKEN, token, null, null, null);
+        }
+
+        on("computation", (b, rhs, v) -> new ASTTreeNode(COMPUTATION, 0, null, list(b.chain(v + 1), b.chain(v + 2), b.node(v + 4)), null));
+        on("varDeclClosure", (b, rhs, v) -> rhs.length == 0 ? null : b.extend(v + 1, 0, b.node(v)));
+        on("funcDeclClosure", (b, rhs, v) -> rhs.length == 0 ? null : b.extend(v + 1, 0, b.node(v)));
+
+        on("varDecl", (b, rhs, v) -> new ASTTreeNode(VAR_DECL, 0, null, list(b.node(v), b.node(v + 1), b.chain(v + 2)), null));
+        on("typeDecl", (b, rhs, v) -> rhs.length == 1 ? TOKENS[rhs[0]] : new ASTTreeNode(ARRAY_TYPE, 0, null, list(b.node(v + 2), b.chain(v + 4)), null));
+        on("numberClosure", (b, rhs, v) -> rhs.length == 0 ? null : b.extend(v + 3, 0, b.node(v + 1)));
+        on("identClosure", (b, rhs, v) -> rhs.length == 0 ? null : b.extend(v + 2, 0, b.node(v + 1)));
+
+        on("funcDecl", (b, rhs, v) -> {
+            int at = rhs[0] == 63 ? v + 1 : v;
+            return new ASTTreeNode(FUNC_DECL, rhs[0], null, new ASTTreeNode[]{b.node(at + 1), b.node(at + 2), b.node(at + 3)}, null);
+        });
+        on("formalParam", (b, rhs, v) -> new ASTTreeNode(PARAMS, 0, null, list(b.chain(v + 1)), null));
+        on("formalParamStatement", (b, rhs, v) -> rhs.length == 0 ? null : b.extend(v + 1, 0, b.node(v)));
+        on("funcBody", (b, rhs, v) -> new ASTTreeNode(FUNC_BODY, 0, null, list(b.chain(v + 1)), null));
+        on("funcBodyStatement", (b, rhs, v) -> {
+            if (rhs.length == 0) {
+                return null;
+            }
+            return rhs.length == 1 ? new Chain().add(0, b.node(v)) : b.extend(v + 1, 0, b.node(v));
+        });
+
+        on("statSequence", (b, rhs, v) -> new ASTTreeNode(STAT_SEQUENCE, 0, null, list(b.node(v), b.chain(v + 1)), null));
+        on("statSequenceClosure", (b, rhs, v) -> rhs.length == 0 ? null : b.values[v + 1]);
+        on("statSubSequenceClosure", (b, rhs, v) -> rhs.length == 0 ? null : b.extend(v + 1, 0, b.node(v)));
+        on("statement", (b, rhs, v) -> b.node(v));
+
+        on("assignment", (b, rhs, v) -> {
+            ASTTreeNode assignment = b.node(v + 2);
+            assignment.setChild(0, b.node(v + 1));
+            return assignment;
+        });
+        on("subAssignment", (b, rhs, v) -> {
+            if (rhs[0] == 40) {
+                return new ASTTreeNode(ASSIGNMENT, 40, null, new ASTTreeNode[]{null, b.node(v + 1)}, null);
+            }
+            if (rhs.length == 2) {
+                return new ASTTreeNode(ASSIGNMENT, b.node(v).getOp(), null, new ASTTreeNode[]{null, b.node(v + 1)}, null);
+            }
+            return new ASTTreeNode(ASSIGNMENT, b.node(v).getOp(), null, new ASTTreeNode[]{null}, null);
+        });
+        on("relOp", (b, rhs, v) -> TOKENS[rhs[0]]);
+        on("shortHandOp", (b, rhs, v) -> TOKENS[rhs[0]]);
+        on("uniOp", (b, rhs, v) -> TOKENS[rhs[0]]);
+
+        on("funcCall", (b, rhs, v) -> new ASTTreeNode(FUNC_CALL, 0, null, list(b.node(v + 1), b.chain(v + 3)), null));
+        on("expressionClosure", (b, rhs, v) -> rhs.length == 0 ? null : b.extend(v + 1, 0, b.node(v)));
+        on("expressionSubClosure", (b, rhs, v) -> rhs.length == 0 ? null : b.extend(v + 2, 0, b.node(v + 1)));
+
+        on("ifStatement", (b, rhs, v) -> {
+            ASTTreeNode otherwise = b.node(v + 4);
+            return new ASTTreeNode(IF, 0, null, otherwise == null
+                    ? new ASTTreeNode[]{b.node(v + 1), b.node(v + 3)}
+                    : new ASTTreeNode[]{b.node(v + 1), b.node(v + 3), otherwise}, null);
+        });
+        on("elseStatement", (b, rhs, v) -> rhs.length == 0 ? null : b.node(v + 1));
+        on("whileStatement", (b, rhs, v) -> new ASTTreeNode(WHILE, 0, null, new ASTTreeNode[]{b.node(v + 1), b.node(v + 3)}, null));
+        on("repeatStatement", (b, rhs, v) -> new ASTTreeNode(REPEAT, 0, null, new ASTTreeNode[]{b.node(v + 1), b.node(v + 3)}, null));
+        on("returnStatement", (b, rhs, v) -> {
+            ASTTreeNode expression = b.node(v + 1);
+            return new ASTTreeNode(RETURN, 0, null, expression == null ? null : new ASTTreeNode[]{expression}, null);
+        });
+        on("expressionStatement", (b, rhs, v) -> rhs.length == 0 ? null : b.node(v));
+
+        on("relation", (b, rhs, v) -> new ASTTreeNode(RELATION, b.node(v + 1).getOp(), null, new ASTTreeNode[]{b.node(v), b.node(v + 2)}, null));
+        on("expression", (b, rhs, v) -> b.operation(SUM, b.node(v), b.chain(v + 1)));
+        on("termClosure", (b, rhs, v) -> rhs.length == 0 ? null : b.extend(v + 2, rhs[0], b.node(v + 1)));
+        on("term", (b, rhs, v) -> b.operation(PRODUCT, b.node(v), b.chain(v + 1)));
+        on("factorClosure", (b, rhs, v) -> rhs.length == 0 ? null : b.extend(v + 2, rhs[0], b.node(v + 1)));
+        on("factor", (b, rhs, v) -> rhs[0] == 33 ? b.node(v + 1) : b.node(v));
+
+        on("designator", (b, rhs, v) -> {
+            Chain indices = b.chain(v + 1);
+            return indices == null ? b.node(v) : new ASTTreeNode(DESIGNATOR, 0, null, list(b.node(v), indices), null);
+        });
+        on("designatorClosure", (b, rhs, v) -> rhs.length == 0 ? null : b.extend(v + 3, 0, b.node(v + 1)));
+        on("ident", (b, rhs, v) -> new ASTTreeNode(IDENT, 0, b.text(v), null, null));
+        on("number", (b, rhs, v) -> new ASTTreeNode(NUMBER, 0, rhs.length == 2 ? "-" + b.text(v + 1) : b.text(v), null, null));
+    }
+
+    // children in order, a part is a node, a chain (stored innermost first) or null for nothing
+    private static ASTTreeNode[] list(Object... parts) {
+        int size = 0;
+        for (Object part : parts) {
+            if (part instanceof Chain) {
+                size += ((Chain) part).size;
+            } else if (part != null) {
+                size++;
+            }
+        }
+        ASTTreeNode[] children = new ASTTreeNode[size];
+        int at = 0;
+        for (Object part : parts) {
+            if (part instanceof Chain) {
+                Chain chain = (Chain) part;
+                for (int i = chain.size - 1; i >= 0; i--) {
+                    children[at++] = chain.items[i];
+                }
+            } else if (part != null) {
+                children[at++] = (ASTTreeNode) part;
+            }
+        }
+        return children;
+    }
+
+    private final IntFunction<String> text;
+    private Object[] values = new Object[64];
+    private int[] tokens = new int[64];
+    private int top = 0;
+
+    public ASTBuilder(IntFunction<String> text) {
+        this.text = text;
+    }
+
+    private ASTTreeNode node(int slot) {
+        return (ASTTreeNode) values[slot];
+    }
+
+    private Chain chain(int slot) {
+        return (Chain) values[slot];
+    }
+
+    private String text(int slot) {
+        return text.apply(tokens[slot]);
+    }
+
+    // released declarations leave null behind and are skipped
+    private Chain extend(int slot, int op, ASTTreeNode item) {
+        Chain chain = chain(slot);
+        if (item == null) {
+            return chain;
+        }
+        return (chain == null ? new Chain() : chain).add(op, item);
+    }
+
+    // head followed by the chain, ops[i] joins children i - 1 and i
+    private ASTTreeNode operation(int kind, ASTTreeNode head, Chain chain) {
+        if (chain == null) {
+            return head;
+        }
+        ASTTreeNode[] children = new ASTTreeNode[chain.size + 1];
+        int[] ops = new int[chain.size + 1];
+        children[0] = head;
+        for (int i = 0; i < chain.size; i++) {
+            children[i + 1] = chain.items[chain.size - 1 - i];
+            ops[i + 1] = chain.ops[chain.size - 1 - i];
+        }
+        return new ASTTreeNode(kind, 0, null, children, ops);
+    }
+
+    private void push(Object value, int token) {
+        if (top == values.length) {
+            values = Arrays.copyOf(values, top * 2);
+            tokens = Arrays.copyOf(tokens, top * 2);
+        }
+        values[top] = value;
+        tokens[top++] = token;
+    }
+
+    // a terminal was matched, token is its index in the token stream
+    public void shift(int token) {
+        push(null, token);
+    }
+
+    // a nonterminal parsed elsewhere leaves nothing behind, like a released declaration
+    public void skip() {
+        push(null, -1);
+    }
+
+    // all symbols of production were matched, replace their values by the production's node
+    public void reduce(Production production) {
+        int[] rhs = production.getSymbols();
+        int base = top - rhs.length;
+        Object value = REDUCTIONS[production.getLeftSymbol() - NONTERMINAL_BASE].reduce(this, rhs, base);
+        Arrays.fill(values, base, top, null);
+        top = base;
+        push(value, -1);
+    }
+
+    // hand out the node of the last reduction, the tree being built keeps nothing of it
+    public ASTTreeNode release() {
+        ASTTreeNode node = (ASTTreeNode) values[top - 1];
+        values[top - 1] = null;
+        return node;
+    }
+
+    public ASTTreeNode getRoot() {
+        return top == 0 ? null : (ASTTreeNode) values[0];
+    }
+}
@@ -1,38 +1,75 @@
 package parser;
 
-import java.util.*;
-
+/**
+ * Abstract syntax tree built by the parser. The closure chains of the grammar are flattened:
+ * a SUM or PRODUCT keeps all operands of the chain as children, with getOp(i) joining children
+ * i - 1 and i, and statement, declaration, parameter and argument lists become plain children.
+ * A designator without index is its IDENT, parentheses and single operand chains disappear.
+ */
 public class ASTTreeNode {
 
-    private final String symbol;
-    private String value;
-    private final List<ASTTreeNode> children;
+    public static final int COMPUTATION = 0;   // varDecl*, funcDecl*, main statSequence
+    public static final int VAR_DECL = 1;      // type, ident+
+    public static final int ARRAY_TYPE = 2;    // number+
+    public static final int FUNC_DECL = 3;     // ident, params, body; op 63 for void
+    public static final int PARAMS = 4;        // ident*
+    public static final int FUNC_BODY = 5;     // varDecl*, statSequence?
+    public static final int STAT_SEQUENCE = 6; // statement+
+    public static final int ASSIGNMENT = 7;    // designator, expression?; op 40, 11 - 14 or 51, 52
+    public static final int FUNC_CALL = 8;     // ident, expression*
+    public static final int IF = 9;            // relation, statSequence, statSequence?
+    public static final int WHILE = 10;        // relation, statSequence
+    public static final int REPEAT = 11;       // statSequence, relation
+    public static final int RETURN = 12;       // expression?
+    public static final int RELATION = 13;     // expression, expression; op 20 - 25
+    public static final int SUM = 14;          // term+; ops 3, 4
+    public static final int PRODUCT = 15;      // factor+; ops 1, 2
+    public static final int DESIGNATOR = 16;   // ident, expression+
+    public static final int IDENT = 17;
+    public static final int NUMBER = 18;
+    public static final int TOKEN = 19;        // a terminal that only matters by its id, e.g. 110 for var
+
+    private static final ASTTreeNode[] NONE = new ASTTreeNode[0];
+
+    private final int kind;
+    private final int op;
+    private final String value;
+    private final ASTTreeNode[] children;
+    private final int[] ops;
 
-    public ASTTreeNode(String node, String value) {
-        this.symbol = node;
+    ASTTreeNode(int kind, int op, String value, ASTTreeNode[] children, int[] ops) {
+        this.kind = kind;
+        this.op = op;
         this.value = value;
-        this.children = new ArrayList<>();
+        this.children = children == null ? NONE : children;
+        this.ops = ops;
     }
 
-    public void addChild(ASTTreeNode node) {
-        children.add(node);
+    public int getKind() {
+        return kind;
     }
 
-    public List<ASTTreeNode> getChildren() {
-        return children;
+    public int getOp() {
+        return op;
     }
 
-    public String getSymbol() {
-        return symbol;
+    public int getOp(int child) {
+        return ops[child];
     }
 
     public String getValue() {
         return value;
     }
 
-    public void setValue(String value) { this.value = value; }
+    public int size() {
+        return children.length;
+    }
+
+    public ASTTreeNode getChild(int index) {
+        return children[index];
+    }
 
-    public void reverse() {
-        Collections.reverse(this.children);
+    void setChild(int index, ASTTreeNode child) {
+        children[index] = child;
     }
 }
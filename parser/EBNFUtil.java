@@ -12,6 +12,8 @@ public class EBNFUtil {
     public static final Map<String, Set<Integer>> followSetMap = new HashMap<>();
 
     public static final Production[][] LLTable = new Production[64][256];
+    // symbol codes below are token ids, nonterminal n is NONTERMINAL_BASE + n
+    public static final int NONTERMINAL_BASE = 256;
 
     static {
         productionStringMap.put("relOp", new ArrayList<>(Arrays.asList("20", "21", "22", "23", "24", "25")));
@@ -67,16 +69,6 @@ public class EBNFUtil {
         productionStringMap.put("varDeclClosure", new ArrayList<>(Arrays.asList("varDecl varDeclClosure", "~")));
         productionStringMap.put("funcDeclClosure", new ArrayList<>(Arrays.asList("funcDecl funcDeclClosure", "~")));
 
-        for (Map.Entry<String, List<String>> entry : productionStringMap.entrySet()) {
-            String key = entry.getKey();
-            List<String> values = entry.getValue();
-            List<Production> productions = new ArrayList<>();
-            for (String value : values) {
-                productions.add(new Production(key, value));
-            }
-            productionMap.put(key, productions);
-        }
-
         nonTerminalMap.put("computation", 0);
         nonTerminalMap.put("relOp", 1);
         nonTerminalMap.put("shortHandOp", 2);
@@ -120,6 +112,24 @@ public class EBNFUtil {
         nonTerminalMap.put("varDeclClosure", 38);
         nonTerminalMap.put("funcDeclClosure", 39);
 
+        for (Map.Entry<String, List<String>> entry : productionStringMap.entrySet()) {
+            String key = entry.getKey();
+            List<String> values = entry.getValue();
+            List<Production> productions = new ArrayList<>();
+            for (String value : values) {
+                productions.add(new Production(key, value));
+            }
+            productionMap.put(key, productions);
+        }
+    }
+
+    private static boolean analyzed = false;
+
+    // FIRST, FOLLOW and LLTable, only needed by ParseTable when the generated tables are stale
+    public static synchronized void analyze() throws ErrorMessage {
+        if (analyzed) {
+            return;
+        }
         constructFirstSet();
 
         // eliminate recursive follow
@@ -128,11 +138,25 @@ public class EBNFUtil {
         followSetMap.put("statSubSequenceClosure", followSet);
 
         constructFollowSet();
-        try {
-            constructFirstTable();
-        } catch (ErrorMessage e) {
-            e.printStackTrace();
+        constructFirstTable();
+        analyzed = true;
+    }
+
+    // FNV-1a over the sorted grammar, changes whenever a production or nonterminal number does
+    public static long fingerprint() {
+        long hash = 0xcbf29ce484222325L;
+        StringBuilder grammar = new StringBuilder();
+        for (Map.Entry<String, List<String>> entry : new TreeMap<>(productionStringMap).entrySet()) {
+            grammar.append(entry.getKey()).append('=').append(String.join("|", entry.getValue())).append(';');
+        }
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(nonTerminalMap).entrySet()) {
+            grammar.append(entry.getKey()).append('=').append(entry.getValue()).append(';');
         }
+        for (int i = 0; i < grammar.length(); i++) {
+            hash ^= grammar.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
     }
 
     public static void constructFirstTable() throws ErrorMessage {
@@ -287,6 +311,10 @@ public class EBNFUtil {
         return followSet;
     }
 
+    public static int encode(String symbol) {
+        return isNumeric(symbol) ? Integer.parseInt(symbol) : NONTERMINAL_BASE + nonTerminalMap.get(symbol);
+    }
+
     public static boolean isNumeric(String candidate) {
         if (candidate.equals(""))
             return false;
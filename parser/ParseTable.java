@@ -0,0 +1,194 @@
+package parser;
+
+import error.ErrorMessage;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+import static parser.EBNFUtil.*;
+
+/**
+ * LL(1) parse table with the FIRST and FOLLOW sets it was built from.
+ * Regenerate ParseTableData after touching the grammar in EBNFUtil:
+ * java parser.ParseTable parser/ParseTableData.java
+ */
+
+public class ParseTable {
+
+    public static final int VERSION = 1;
+    private static final int TERMINALS = 256;
+    // stands for the empty word (-1 in firstSetMap) inside emitted FIRST sets
+    public static final int EPSILON = 256;
+
+    private final Production[] productions;
+    // nonterminal * TERMINALS + terminal -> production + 1, 0 is a syntax error
+    private final short[] table;
+    private final int[][] first;
+    private final int[][] follow;
+    // nonterminal * TERMINALS + terminal -> the terminal may follow the nonterminal
+    private final boolean[] followed;
+    private final String[] names;
+
+    // every set is stored row by row: row n owns entries[rows[n] .. rows[n + 1])
+    private ParseTable(Production[] productions, short[] tableRows, short[] tableEntries,
+                       short[] firstRows, short[] firstEntries, short[] followRows, short[] followEntries) {
+        this.productions = productions;
+        int rows = tableRows.length - 1;
+        this.table = new short[rows * TERMINALS];
+        for (int row = 0; row < rows; row++) {
+            for (int i = tableRows[row]; i < tableRows[row + 1]; i += 2) {
+                table[row * TERMINALS + tableEntries[i]] = (short) (tableEntries[i + 1] + 1);
+            }
+        }
+        this.first = expand(firstRows, firstEntries);
+        this.follow = expand(followRows, followEntries);
+        this.followed = new boolean[rows * TERMINALS];
+        for (int row = 0; row < rows; row++) {
+            for (int terminal : follow[row]) {
+                followed[row * TERMINALS + terminal] = true;
+            }
+        }
+        this.names = names();
+    }
+
+    private static int[][] expand(short[] rows, short[] entries) {
+        int[][] sets = new int[rows.length - 1][];
+        for (int row = 0; row < sets.length; row++) {
+            sets[row] = new int[rows[row + 1] - rows[row]];
+            for (int i = 0; i < sets[row].length; i++) {
+                sets[row][i] = entries[rows[row] + i];
+            }
+        }
+        return sets;
+    }
+
+    public Production get(int nonTerminal, int terminal) {
+        int entry = table[nonTerminal * TERMINALS + terminal];
+        return entry == 0 ? null : productions[entry - 1];
+    }
+
+    public int[] getFirst(int nonTerminal) {
+        return first[nonTerminal];
+    }
+
+    public int[] getFollow(int nonTerminal) {
+        return follow[nonTerminal];
+    }
+
+    public boolean isFollow(int nonTerminal, int terminal) {
+        return followed[nonTerminal * TERMINALS + terminal];
+    }
+
+    public String getName(int nonTerminal) {
+        return names[nonTerminal];
+    }
+
+    private static String[] names() {
+        String[] names = new String[nonTerminalMap.size()];
+        for (Map.Entry<String, Integer> entry : nonTerminalMap.entrySet()) {
+            names[entry.getValue()] = entry.getKey();
+        }
+        return names;
+    }
+
+    // productions in nonterminal order, the generated table refers to them by index
+    private static Production[] productions() {
+        List<Production> productions = new ArrayList<>();
+        for (String name : names()) {
+            productions.addAll(productionMap.get(name));
+        }
+        return productions.toArray(new Production[0]);
+    }
+
+    public static ParseTable load() throws ErrorMessage {
+        if (ParseTableData.VERSION == VERSION && ParseTableData.FINGERPRINT == fingerprint()) {
+            return new ParseTable(productions(), ParseTableData.TABLE_ROWS, ParseTableData.TABLE,
+                    ParseTableData.FIRST_ROWS, ParseTableData.FIRST, ParseTableData.FOLLOW_ROWS, ParseTableData.FOLLOW);
+        }
+        // grammar changed since the tables were generated
+        short[][] sets = analyze(productions());
+        return new ParseTable(productions(), sets[0], sets[1], sets[2], sets[3], sets[4], sets[5]);
+    }
+
+    // run the grammar analysis of EBNFUtil, conflicts are reported there
+    private static short[][] analyze(Production[] productions) throws ErrorMessage {
+        EBNFUtil.analyze();
+        int rows = nonTerminalMap.size();
+        String[] names = names();
+        Map<Production, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < productions.length; i++) {
+            index.put(productions[i], i);
+        }
+
+        List<List<Integer>> tableSets = new ArrayList<>();
+        List<List<Integer>> firstSets = new ArrayList<>();
+        List<List<Integer>> followSets = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            List<Integer> entries = new ArrayList<>();
+            for (int terminal = 0; terminal < TERMINALS; terminal++) {
+                if (LLTable[row][terminal] != null) {
+                    entries.add(terminal);
+                    entries.add(index.get(LLTable[row][terminal]));
+                }
+            }
+            tableSets.add(entries);
+            List<Integer> firstSet = new ArrayList<>();
+            for (int terminal : new TreeSet<>(getFirstSet(names[row]))) {
+                firstSet.add(terminal == -1 ? EPSILON : terminal);
+            }
+            firstSets.add(firstSet);
+            followSets.add(new ArrayList<>(new TreeSet<>(getFollowSet(names[row]))));
+        }
+
+        short[][] sets = new short[6][];
+        List<List<List<Integer>>> all = List.of(tableSets, firstSets, followSets);
+        for (int k = 0; k < 3; k++) {
+            List<List<Integer>> rowsOfSet = all.get(k);
+            short[] offsets = new short[rows + 1];
+            List<Integer> flat = new ArrayList<>();
+            for (int row = 0; row < rows; row++) {
+                offsets[row] = (short) flat.size();
+                flat.addAll(rowsOfSet.get(row));
+            }
+            offsets[rows] = (short) flat.size();
+            short[] entries = new short[flat.size()];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = (short) (int) flat.get(i);
+            }
+            sets[2 * k] = offsets;
+            sets[2 * k + 1] = entries;
+        }
+        return sets;
+    }
+
+    private static void write(PrintWriter writer, String name, short[] values) {
+        writer.println("    static final short[] " + name + " = {");
+        for (int i = 0; i < values.length; i += 16) {
+            StringBuilder line = new StringBuilder("            ");
+            for (int j = i; j < Math.min(values.length, i + 16); j++) {
+                line.append(values[j]).append(", ");
+            }
+            writer.println(line.toString().stripTrailing());
+        }
+        writer.println("    };");
+    }
+
+    public static void main(String[] args) throws IOException, ErrorMessage {
+        String output = args.length > 0 ? args[0] : "./parser/ParseTableData.java";
+        short[][] sets = analyze(productions());
+        String[] names = {"TABLE_ROWS", "TABLE", "FIRST_ROWS", "FIRST", "FOLLOW_ROWS", "FOLLOW"};
+        try (PrintWriter writer = new PrintWriter(output)) {
+            writer.println("package parser;");
+            writer.println();
+            writer.println("// Generated by parser.ParseTable, do not edit");
+            writer.println("class ParseTableData {");
+            writer.println("    static final int VERSION = " + VERSION + ";");
+            writer.println("    static final long FINGERPRINT = " + fingerprint() + "L;");
+            for (int i = 0; i < names.length; i++) {
+                write(writer, names[i], sets[i]);
+            }
+            writer.println("}");
+        }
+    }
+}
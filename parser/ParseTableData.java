@@ -0,0 +1,84 @@
+package parser;
+
+// Generated by parser.ParseTable, do not edit
+class ParseTableData {
+    static final int VERSION = 1;
+    static final long FINGERPRINT = 6751388053314340075L;
+    static final short[] TABLE_ROWS = {
+            0, 2, 14, 22, 26, 28, 32, 34, 44, 54, 64, 74, 76, 78, 80, 82,
+            84, 86, 98, 110, 114, 118, 122, 124, 126, 184, 226, 264, 278, 290, 294, 298,
+            320, 332, 354, 358, 364, 368, 386, 396, 402,
+    };
+    static final short[] TABLE = {
+            200, 0, 20, 1, 21, 2, 22, 3, 23, 4, 24, 5, 25, 6, 11, 7,
+            12, 8, 13, 9, 14, 10, 51, 11, 52, 12, 61, 13, 4, 14, 60, 15,
+            61, 16, 4, 18, 33, 19, 60, 18, 61, 17, 100, 20, 4, 21, 33, 21,
+            60, 21, 61, 21, 100, 21, 4, 22, 33, 22, 60, 22, 61, 22, 100, 22,
+            4, 23, 33, 23, 60, 23, 61, 23, 100, 23, 77, 24, 100, 25, 101, 26,
+            102, 27, 103, 28, 104, 29, 77, 30, 100, 31, 101, 32, 102, 33, 103, 34,
+            104, 35, 77, 36, 100, 36, 101, 36, 102, 36, 103, 36, 104, 36, 110, 37,
+            111, 38, 110, 39, 111, 39, 63, 41, 112, 40, 33, 42, 150, 43, 1, 45,
+            2, 45, 3, 45, 4, 45, 11, 45, 12, 45, 13, 45, 14, 45, 20, 45,
+            21, 45, 22, 45, 23, 45, 24, 45, 25, 45, 31, 45, 32, 44, 34, 45,
+            35, 45, 40, 45, 41, 45, 42, 45, 43, 45, 51, 45, 52, 45, 70, 45,
+            80, 45, 81, 45, 82, 45, 90, 45, 1, 46, 2, 47, 3, 48, 4, 48,
+            20, 48, 21, 48, 22, 48, 23, 48, 24, 48, 25, 48, 31, 48, 34, 48,
+            35, 48, 41, 48, 42, 48, 43, 48, 70, 48, 80, 48, 81, 48, 82, 48,
+            90, 48, 3, 49, 4, 50, 20, 51, 21, 51, 22, 51, 23, 51, 24, 51,
+            25, 51, 31, 51, 34, 51, 35, 51, 41, 51, 42, 51, 43, 51, 70, 51,
+            80, 51, 81, 51, 82, 51, 90, 51, 11, 53, 12, 53, 13, 53, 14, 53,
+            40, 52, 51, 54, 52, 54, 4, 55, 33, 55, 35, 56, 60, 55, 61, 55,
+            100, 55, 31, 57, 35, 58, 82, 60, 90, 59, 4, 61, 33, 61, 43, 62,
+            60, 61, 61, 61, 70, 62, 80, 62, 81, 62, 82, 62, 90, 62, 100, 61,
+            43, 64, 70, 63, 80, 64, 81, 64, 82, 64, 90, 64, 43, 66, 77, 65,
+            80, 66, 81, 66, 82, 66, 90, 66, 100, 65, 101, 65, 102, 65, 103, 65,
+            104, 65, 32, 67, 61, 68, 31, 69, 35, 70, 70, 70, 35, 72, 61, 71,
+            77, 74, 80, 75, 100, 74, 101, 74, 102, 74, 103, 74, 104, 74, 110, 73,
+            111, 73, 63, 77, 110, 76, 111, 76, 112, 77, 150, 77, 63, 78, 112, 78,
+            150, 79,
+    };
+    static final short[] FIRST_ROWS = {
+            0, 1, 7, 11, 13, 14, 16, 17, 22, 27, 32, 37, 38, 39, 40, 41,
+            42, 43, 49, 55, 57, 59, 61, 62, 63, 65, 68, 71, 78, 84, 86, 88,
+            94, 96, 103, 105, 107, 109, 118, 121, 124,
+    };
+    static final short[] FIRST = {
+            200, 20, 21, 22, 23, 24, 25, 11, 12, 13, 14, 51, 52, 61, 4, 60,
+            61, 4, 33, 60, 61, 100, 4, 33, 60, 61, 100, 4, 33, 60, 61, 100,
+            4, 33, 60, 61, 100, 77, 100, 101, 102, 103, 104, 77, 100, 101, 102, 103,
+            104, 77, 100, 101, 102, 103, 104, 110, 111, 110, 111, 63, 112, 33, 150, 256,
+            32, 256, 1, 2, 256, 3, 4, 11, 12, 13, 14, 40, 51, 52, 256, 4,
+            33, 60, 61, 100, 256, 31, 256, 90, 256, 4, 33, 60, 61, 100, 256, 70,
+            256, 77, 100, 101, 102, 103, 104, 256, 32, 256, 31, 256, 61, 256, 77, 100,
+            101, 102, 103, 104, 110, 111, 256, 110, 111, 256, 63, 112,
+    };
+    static final short[] FOLLOW_ROWS = {
+            0, 1, 6, 11, 17, 47, 68, 96, 117, 136, 153, 161, 167, 188, 194, 200,
+            206, 212, 218, 223, 224, 236, 239, 240, 241, 269, 288, 305, 311, 312, 313, 314,
+            320, 325, 330, 331, 333, 334, 335, 338, 339,
+    };
+    static final short[] FOLLOW = {
+            255, 4, 33, 60, 61, 100, 4, 33, 60, 61, 100, 43, 70, 80, 81, 82,
+            90, 1, 2, 3, 4, 11, 12, 13, 14, 20, 21, 22, 23, 24, 25, 31,
+            32, 33, 34, 35, 40, 41, 42, 43, 51, 52, 70, 80, 81, 82, 90, 1,
+            2, 3, 4, 20, 21, 22, 23, 24, 25, 31, 34, 35, 41, 42, 43, 70,
+            80, 81, 82, 90, 1, 2, 3, 4, 11, 12, 13, 14, 20, 21, 22, 23,
+            24, 25, 31, 34, 35, 40, 41, 42, 43, 51, 52, 70, 80, 81, 82, 90,
+            1, 2, 3, 4, 20, 21, 22, 23, 24, 25, 31, 34, 35, 41, 42, 43,
+            70, 80, 81, 82, 90, 3, 4, 20, 21, 22, 23, 24, 25, 31, 34, 35,
+            41, 42, 43, 70, 80, 81, 82, 90, 20, 21, 22, 23, 24, 25, 31, 34,
+            35, 41, 42, 43, 70, 80, 81, 82, 90, 41, 42, 43, 70, 80, 81, 82,
+            90, 43, 70, 80, 81, 82, 90, 1, 2, 3, 4, 20, 21, 22, 23, 24,
+            25, 31, 34, 35, 41, 42, 43, 70, 80, 81, 82, 90, 43, 70, 80, 81,
+            82, 90, 43, 70, 80, 81, 82, 90, 43, 70, 80, 81, 82, 90, 43, 70,
+            80, 81, 82, 90, 43, 70, 80, 81, 82, 90, 43, 80, 81, 82, 90, 61,
+            63, 77, 80, 100, 101, 102, 103, 104, 110, 111, 112, 150, 63, 112, 150, 150,
+            70, 1, 2, 3, 4, 11, 12, 13, 14, 20, 21, 22, 23, 24, 25, 31,
+            34, 35, 40, 41, 42, 43, 51, 52, 70, 80, 81, 82, 90, 3, 4, 20,
+            21, 22, 23, 24, 25, 31, 34, 35, 41, 42, 43, 70, 80, 81, 82, 90,
+            20, 21, 22, 23, 24, 25, 31, 34, 35, 41, 42, 43, 70, 80, 81, 82,
+            90, 43, 70, 80, 81, 82, 90, 35, 35, 82, 43, 70, 80, 81, 82, 90,
+            43, 80, 81, 82, 90, 43, 80, 81, 82, 90, 61, 35, 70, 35, 80, 63,
+            112, 150, 150,
+    };
+}
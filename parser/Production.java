@@ -3,17 +3,34 @@ package parser;
 public class Production {
     private final String left;
     private final String right;
+    // right hand side split once, terminals keep their token id and nonterminals are shifted by NONTERMINAL_BASE
+    private final int[] symbols;
+    private final int leftSymbol;
 
 
     public Production(String left, String right) {
         this.left = left;
         this.right = right;
+        String[] names = EBNFUtil.isEpsilon(right) ? new String[0] : right.split(" ");
+        this.leftSymbol = EBNFUtil.encode(left);
+        this.symbols = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            symbols[i] = EBNFUtil.encode(names[i]);
+        }
     }
 
     public String getRight() {
         return right;
     }
 
+    public int[] getSymbols() {
+        return symbols;
+    }
+
+    public int getLeftSymbol() {
+        return leftSymbol;
+    }
+
     @Override
     public String toString() {
         return "Production{" +
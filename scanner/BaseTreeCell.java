@@ -26,6 +26,29 @@ public abstract class BaseTreeCell extends RegexTreeCell {
         }
     }
 
+    public static class ClassCell extends BaseTreeCell {
+        private final char[] members;
+
+        public ClassCell(char[] members) {
+            this.members = members;
+        }
+
+        @Override
+        public IntegerPair construct(NFA context) {
+            int start = context.addCell();
+            int end = context.addCell();
+            for (char c : members) {
+                context.addTransition(c, start, end);
+            }
+            return new IntegerPair(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + new String(members) + "]";
+        }
+    }
+
     public static class EpsilonCell extends BaseTreeCell {
 
         public EpsilonCell() {
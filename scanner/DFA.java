@@ -3,71 +3,264 @@ package scanner;
 import java.util.*;
 
 public class DFA {
-    public final List<DFACell> cells;
-    public final List<Set<Integer>> states;
-    public final List<Character> alphabet;
-    Integer[][] dtrans;
-    Integer acceptNum;
-
-    public DFA(List<Set<Integer>> states, List<Character> alphabet, Integer[][] dtrans, Integer acceptNum) {
-        this.states = states;
-        this.alphabet = alphabet;
-        this.dtrans = dtrans;
-        this.acceptNum = acceptNum;
-        this.cells = new ArrayList<>();
-
-        for (Set<Integer> state : states) {
-            addCell(state.contains(acceptNum));
-        }
-
-        for (int i = 0; i < states.size(); i++) {
-            for (int j = 0; j < alphabet.size(); j++) {
-                if (dtrans[i][j] != -1) {
-                    addTransition(alphabet.get(j), i, dtrans[i][j]);
-                }
-            }
+    // input character -> equivalence class, -1 outside the alphabet
+    private final int[] classOf;
+    private final int classCount;
+    // next state of state * classCount + class, -1 if there is no transition
+    private final int[] trans;
+    // token id accepted by every state, -1 if the state does not accept
+    private final int[] tokens;
+    private final boolean[] accept;
+
+    public DFA(int[] classOf, int classCount, int[] trans, int[] tokens) {
+        this.classOf = classOf;
+        this.classCount = classCount;
+        this.trans = trans;
+        this.tokens = tokens;
+        this.accept = new boolean[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            accept[i] = tokens[i] != -1;
         }
+    }
 
+    // deterministic move, -1 if there is no transition
+    public int step(int stateNum, char input) {
+        if (stateNum < 0 || input >= classOf.length) {
+            return -1;
+        }
+        int charClass = classOf[input];
+        if (charClass < 0) {
+            return -1;
+        }
+        return trans[stateNum * classCount + charClass];
     }
 
-    private void addCell(boolean accept) {
-        DFACell state = new DFACell();
-        state.accept = accept;
-        cells.add(state);
+    public int getToken(int stateNum) {
+        return tokens[stateNum];
     }
 
-    private void addTransition(char input, int current, int next) {
-        cells.get(current).addTransition(input, next);
+    public boolean isAccept(int stateNum) {
+        return accept[stateNum];
     }
 
-    public Set<Integer> move(Set<Integer> stateNums, char input) {
-        Set<Integer> move = new HashSet<>();
-        for (int stateNum : stateNums) {
-            Set<Integer> nexts = cells.get(stateNum).strans.get(input);
-            if (nexts != null) {
-                move.addAll(nexts);
-            }
-        }
-        return move;
+    public int getStateCount() {
+        return tokens.length;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getCharCount() {
+        return classOf.length;
+    }
+
+    public int getCharClass(char c) {
+        return c < classOf.length ? classOf[c] : -1;
+    }
+
+    public int getTransition(int stateNum, int charClass) {
+        return trans[stateNum * classCount + charClass];
     }
 
     public boolean search(String regex) {
-        Set<Integer> start = new HashSet<>();
-        start.add(0);
-        for (int i = 0; i < regex.length(); i++) {
-            Set<Integer> set = move(start, regex.charAt(i));
-            if (set.size() == 0) {
-                return false;
-            } else if (i == regex.length() - 1) {
-                for (int j : set) {
-                    if (cells.get(j).accept) {
-                        return true;
+        int state = 0;
+        for (int i = 0; i < regex.length() && state != -1; i++) {
+            state = step(state, regex.charAt(i));
+        }
+        return state != -1 && accept[state];
+    }
+
+    /**
+     * Hopcroft partition refinement. States start grouped by accepted token, a sink
+     * state completes the transition function and its class becomes the dead state -1.
+     * Character classes whose columns end up identical are merged afterwards.
+     */
+    public DFA minimize() {
+        int k = classCount;
+        int n = tokens.length + 1;
+        int sink = n - 1;
+
+        // predecessors per symbol in compressed rows: pred[predStart[a * n + t] .. predStart[a * n + t + 1])
+        int[] predStart = new int[k * n + 1];
+        for (int s = 0; s < n; s++) {
+            for (int a = 0; a < k; a++) {
+                predStart[a * n + target(s, a, sink) + 1]++;
+            }
+        }
+        for (int i = 0; i < k * n; i++) {
+            predStart[i + 1] += predStart[i];
+        }
+        int[] pred = new int[k * n];
+        int[] fill = Arrays.copyOf(predStart, k * n);
+        for (int s = 0; s < n; s++) {
+            for (int a = 0; a < k; a++) {
+                pred[fill[a * n + target(s, a, sink)]++] = s;
+            }
+        }
+
+        // partition: block b owns elems[first[b] .. end[b]), marked states gather in [first[b] .. mid[b])
+        int[] elems = new int[n];
+        int[] loc = new int[n];
+        int[] blockOf = new int[n];
+        int[] first = new int[n];
+        int[] end = new int[n];
+        int[] mid = new int[n];
+        int blocks = 0;
+
+        Map<Integer, List<Integer>> groups = new TreeMap<>();
+        for (int s = 0; s < n; s++) {
+            groups.computeIfAbsent(s == sink ? -1 : tokens[s], g -> new ArrayList<>()).add(s);
+        }
+        int cursor = 0;
+        for (List<Integer> group : groups.values()) {
+            first[blocks] = cursor;
+            mid[blocks] = cursor;
+            for (int s : group) {
+                elems[cursor] = s;
+                loc[s] = cursor++;
+                blockOf[s] = blocks;
+            }
+            end[blocks++] = cursor;
+        }
+
+        boolean[] waiting = new boolean[n * k];
+        Deque<Integer> worklist = new ArrayDeque<>();
+        for (int b = 0; b < blocks; b++) {
+            for (int a = 0; a < k; a++) {
+                waiting[b * k + a] = true;
+                worklist.add(b * k + a);
+            }
+        }
+
+        int[] splitter = new int[n];
+        int[] touched = new int[n];
+        while (!worklist.isEmpty()) {
+            int pair = worklist.poll();
+            waiting[pair] = false;
+            int a = pair % k;
+            int block = pair / k;
+
+            int size = 0;
+            for (int i = first[block]; i < end[block]; i++) {
+                splitter[size++] = elems[i];
+            }
+            int touchedCount = 0;
+            for (int i = 0; i < size; i++) {
+                int t = splitter[i];
+                for (int p = predStart[a * n + t]; p < predStart[a * n + t + 1]; p++) {
+                    int s = pred[p];
+                    int b = blockOf[s];
+                    if (loc[s] < mid[b]) {
+                        continue;
+                    }
+                    if (mid[b] == first[b]) {
+                        touched[touchedCount++] = b;
+                    }
+                    // swap s into the marked prefix
+                    int other = elems[mid[b]];
+                    elems[loc[s]] = other;
+                    loc[other] = loc[s];
+                    elems[mid[b]] = s;
+                    loc[s] = mid[b]++;
+                }
+            }
+
+            for (int i = 0; i < touchedCount; i++) {
+                int b = touched[i];
+                if (mid[b] == end[b]) {
+                    mid[b] = first[b];
+                    continue;
+                }
+                int split = blocks++;
+                first[split] = first[b];
+                end[split] = mid[b];
+                mid[split] = first[split];
+                first[b] = mid[b];
+                for (int j = first[split]; j < end[split]; j++) {
+                    blockOf[elems[j]] = split;
+                }
+                for (int c = 0; c < k; c++) {
+                    if (waiting[b * k + c]) {
+                        waiting[split * k + c] = true;
+                        worklist.add(split * k + c);
+                    } else {
+                        int smaller = end[split] - first[split] <= end[b] - first[b] ? split : b;
+                        waiting[smaller * k + c] = true;
+                        worklist.add(smaller * k + c);
                     }
                 }
             }
-            start = new HashSet<>(set);
         }
-        return false;
+
+        // renumber classes breadth first from the start state, the sink class is dead
+        int[] classId = new int[blocks];
+        Arrays.fill(classId, -1);
+        int dead = blockOf[sink];
+        List<Integer> order = new ArrayList<>();
+        classId[blockOf[0]] = 0;
+        order.add(blockOf[0]);
+        for (int i = 0; i < order.size(); i++) {
+            int representative = elems[first[order.get(i)]];
+            for (int a = 0; a < k; a++) {
+                int b = blockOf[target(representative, a, sink)];
+                if (b != dead && classId[b] == -1) {
+                    classId[b] = order.size();
+                    order.add(b);
+                }
+            }
+        }
+
+        int[] minTokens = new int[order.size()];
+        int[] minTrans = new int[order.size() * k];
+        for (int i = 0; i < order.size(); i++) {
+            int representative = elems[first[order.get(i)]];
+            minTokens[i] = tokens[representative];
+            for (int a = 0; a < k; a++) {
+                int b = blockOf[target(representative, a, sink)];
+                minTrans[i * k + a] = b == dead ? -1 : classId[b];
+            }
+        }
+        return compressClasses(minTrans, minTokens);
+    }
+
+    private DFA compressClasses(int[] minTrans, int[] minTokens) {
+        int rows = minTokens.length;
+        Map<List<Integer>, Integer> columns = new HashMap<>();
+        int[] remap = new int[classCount];
+        for (int a = 0; a < classCount; a++) {
+            List<Integer> column = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                column.add(minTrans[i * classCount + a]);
+            }
+            Integer merged = columns.get(column);
+            if (merged == null) {
+                merged = columns.size();
+                columns.put(column, merged);
+            }
+            remap[a] = merged;
+        }
+
+        int count = columns.size();
+        int[] compressedClassOf = new int[classOf.length];
+        for (int c = 0; c < classOf.length; c++) {
+            compressedClassOf[c] = classOf[c] < 0 ? -1 : remap[classOf[c]];
+        }
+        int[] compressedTrans = new int[rows * count];
+        for (int i = 0; i < rows; i++) {
+            for (int a = 0; a < classCount; a++) {
+                compressedTrans[i * count + remap[a]] = minTrans[i * classCount + a];
+            }
+        }
+        return new DFA(compressedClassOf, count, compressedTrans, minTokens);
+    }
+
+    private int target(int stateNum, int column, int sink) {
+        if (stateNum == sink) {
+            return sink;
+        }
+        int next = trans[stateNum * classCount + column];
+        return next == -1 ? sink : next;
     }
 
 }
@@ -0,0 +1,85 @@
+package scanner;
+
+import error.ErrorMessage;
+
+import java.util.Map;
+
+/**
+ * Perfect hash of the keywords, consulted whenever the automaton accepts an identifier.
+ * The multiplier is searched by LexerTable and stored with the generated tables.
+ */
+public class KeywordTable {
+    private final int multiplier;
+    private final int shift;
+    private final String[] words;
+    private final int[] ids;
+
+    private KeywordTable(int multiplier, int bits) {
+        this.multiplier = multiplier;
+        this.shift = 32 - bits;
+        this.words = new String[1 << bits];
+        this.ids = new int[1 << bits];
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = hash * 31 + text.charAt(i);
+        }
+        return hash;
+    }
+
+    private int slot(int hash) {
+        return (hash * multiplier) >>> shift;
+    }
+
+    // token id of the keyword spelled by text[start .. end), -1 for a plain identifier
+    public int lookup(CharSequence text, int start, int end) {
+        int slot = slot(hash(text, start, end));
+        String word = words[slot];
+        if (word == null || word.length() != end - start) {
+            return -1;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) != text.charAt(start + i)) {
+                return -1;
+            }
+        }
+        return ids[slot];
+    }
+
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    // null if two keywords share a slot under this multiplier
+    public static KeywordTable build(Map<Integer, String> keywords, int multiplier) {
+        int bits = 1;
+        while ((1 << bits) < 2 * keywords.size()) {
+            bits++;
+        }
+        KeywordTable table = new KeywordTable(multiplier, bits);
+        for (Map.Entry<Integer, String> entry : keywords.entrySet()) {
+            String word = entry.getValue();
+            int slot = table.slot(hash(word, 0, word.length()));
+            if (table.words[slot] != null) {
+                return null;
+            }
+            table.words[slot] = word;
+            table.ids[slot] = entry.getKey();
+        }
+        return table;
+    }
+
+    public static KeywordTable search(Map<Integer, String> keywords) throws ErrorMessage {
+        // odd multipliers starting from the golden ratio, a table half full is found within a few tries
+        int multiplier = 0x9e3779b1;
+        for (int attempt = 0; attempt < 1 << 16; attempt++, multiplier += 2) {
+            KeywordTable table = build(keywords, multiplier);
+            if (table != null) {
+                return table;
+            }
+        }
+        throw new ErrorMessage("Lexical Analysis", "Distinct keyword hashes", "No perfect hash for keywords " + keywords.values());
+    }
+}
@@ -0,0 +1,117 @@
+package scanner;
+
+import error.ErrorMessage;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Precompiled tables of the combined lexer automaton.
+ * Regenerate LexerTableData after touching RegexUtil:
+ * java scanner.LexerTable scanner/LexerTableData.java
+ */
+
+public class LexerTable {
+
+    public static final int VERSION = 4;
+    private static final int CHUNK = 8192;
+
+    public static DFA load() throws ErrorMessage {
+        if (LexerTableData.VERSION == VERSION && LexerTableData.FINGERPRINT == RegexUtil.fingerprint()) {
+            return decode(String.join("", LexerTableData.TABLE));
+        }
+        // regex set changed since the tables were generated
+        return Regex2NFA.regex2NFA(RegexUtil.id2pattern).NFA2DFA();
+    }
+
+    public static KeywordTable keywords() throws ErrorMessage {
+        if (LexerTableData.VERSION == VERSION && LexerTableData.FINGERPRINT == RegexUtil.fingerprint()) {
+            KeywordTable table = KeywordTable.build(RegexUtil.id2keyword, LexerTableData.KEYWORD_MULTIPLIER);
+            if (table != null) {
+                return table;
+            }
+        }
+        return KeywordTable.search(RegexUtil.id2keyword);
+    }
+
+    // layout: char count, class + 1 per char, class count, state count, token + 1 per state, next state + 1 per transition
+    public static String encode(DFA dfa) {
+        StringBuilder table = new StringBuilder();
+        int chars = dfa.getCharCount();
+        table.append((char) chars);
+        for (char c = 0; c < chars; c++) {
+            table.append((char) (dfa.getCharClass(c) + 1));
+        }
+        int columns = dfa.getClassCount();
+        int rows = dfa.getStateCount();
+        table.append((char) columns).append((char) rows);
+        for (int i = 0; i < rows; i++) {
+            table.append((char) (dfa.getToken(i) + 1));
+        }
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                table.append((char) (dfa.getTransition(i, j) + 1));
+            }
+        }
+        return table.toString();
+    }
+
+    public static DFA decode(String table) {
+        int cursor = 0;
+        int chars = table.charAt(cursor++);
+        int[] classOf = new int[chars];
+        for (int c = 0; c < chars; c++) {
+            classOf[c] = table.charAt(cursor++) - 1;
+        }
+        int columns = table.charAt(cursor++);
+        int rows = table.charAt(cursor++);
+        int[] tokens = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            tokens[i] = table.charAt(cursor++) - 1;
+        }
+        int[] trans = new int[rows * columns];
+        for (int i = 0; i < trans.length; i++) {
+            trans[i] = table.charAt(cursor++) - 1;
+        }
+        return new DFA(classOf, columns, trans, tokens);
+    }
+
+    private static String literal(String chunk) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c >= 0x20 && c < 0x7f) {
+                literal.append(c);
+            } else if (c < 0x80) {
+                // unicode escapes of line terminators would break the literal
+                literal.append(String.format("\\%03o", (int) c));
+            } else {
+                literal.append(String.format("\\u%04x", (int) c));
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    public static void main(String[] args) throws IOException, ErrorMessage {
+        String output = args.length > 0 ? args[0] : "./scanner/LexerTableData.java";
+        String table = encode(Regex2NFA.regex2NFA(RegexUtil.id2pattern).NFA2DFA());
+        KeywordTable keywords = KeywordTable.search(RegexUtil.id2keyword);
+        try (PrintWriter writer = new PrintWriter(output)) {
+            writer.println("package scanner;");
+            writer.println();
+            writer.println("// Generated by scanner.LexerTable, do not edit");
+            writer.println("class LexerTableData {");
+            writer.println("    static final int VERSION = " + VERSION + ";");
+            writer.println("    static final long FINGERPRINT = " + RegexUtil.fingerprint() + "L;");
+            writer.println("    static final int KEYWORD_MULTIPLIER = " + keywords.getMultiplier() + ";");
+            writer.println("    static final String[] TABLE = {");
+            for (int i = 0; i < table.length(); i += CHUNK) {
+                writer.println("            " + literal(table.substring(i, Math.min(table.length(), i + CHUNK))) + ",");
+            }
+            writer.println("    };");
+            writer.println("}");
+        }
+    }
+}
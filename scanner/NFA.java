@@ -6,6 +6,8 @@ import java.util.*;
 public class NFA {
     public final List<NFACell> cells = new ArrayList<>();
     public final Set<Character> alphabet = new HashSet<>();
+    // accepting cell -> token id, only filled for the combined lexer automaton
+    public final Map<Integer, Integer> acceptTokens = new HashMap<>();
 
     public int addCell() {
         NFACell state = new NFACell();
@@ -22,70 +24,165 @@ public class NFA {
         cells.get(current).addEpsilon(next);
     }
 
-    public Set<Integer> eclosure(int stateNum) {
-        Set<Integer> eclosure = new HashSet<>();
-        Stack<Integer> stack = new Stack<>();
-        eclosure.add(stateNum);
-        stack.push(stateNum);
-        while (!stack.empty()) {
-            int state = stack.pop();
-            Set<Integer> etrans = cells.get(state).etrans;
-            for (int i : etrans) {
-                if (!eclosure.contains(i)) {
-                    eclosure.add(i);
-                    stack.push(i);
+    public void addAccept(int cell, int token) {
+        acceptTokens.put(cell, token);
+    }
+
+    // epsilon closure of a bitset of cells, in place
+    private void eclosure(long[] set, int[] stack) {
+        int top = 0;
+        for (int word = 0; word < set.length; word++) {
+            for (long bits = set[word]; bits != 0; bits &= bits - 1) {
+                stack[top++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        while (top > 0) {
+            NFACell cell = cells.get(stack[--top]);
+            for (int i = 0; i < cell.etransCount; i++) {
+                int next = cell.etrans[i];
+                if ((set[next >>> 6] & (1L << next)) == 0) {
+                    set[next >>> 6] |= 1L << next;
+                    stack[top++] = next;
                 }
             }
         }
-        return eclosure;
     }
 
-    public Set<Integer> eclosure(Set<Integer> states) {
-        Set<Integer> eclosures = new HashSet<>();
-        for (int state : states) {
-            eclosures.addAll(eclosure(state));
+    // characters labelling exactly the same NFA edges share one class
+    private int[] charClasses() {
+        int max = 0;
+        for (char c : alphabet) {
+            max = Math.max(max, c + 1);
+        }
+        List<List<Integer>> signatures = new ArrayList<>();
+        for (int c = 0; c < max; c++) {
+            signatures.add(new ArrayList<>());
+        }
+        int edge = 0;
+        for (NFACell cell : cells) {
+            for (int i = 0; i < cell.stransCount; i++) {
+                signatures.get(cell.symbols[i]).add(edge++);
+            }
         }
-        return eclosures;
-    }
 
-    public Set<Integer> move(Set<Integer> stateNums, char input) {
-        Set<Integer> move = new HashSet<>();
-        for (int stateNum : stateNums) {
-            Set<Integer> nexts = cells.get(stateNum).strans.get(input);
-            if (nexts != null) {
-                move.addAll(nexts);
+        int[] classOf = new int[max];
+        Map<List<Integer>, Integer> classes = new HashMap<>();
+        for (int c = 0; c < max; c++) {
+            if (!alphabet.contains((char) c)) {
+                classOf[c] = -1;
+                continue;
             }
+            Integer charClass = classes.get(signatures.get(c));
+            if (charClass == null) {
+                charClass = classes.size();
+                classes.put(signatures.get(c), charClass);
+            }
+            classOf[c] = charClass;
         }
-        return move;
+        return classOf;
     }
 
     public DFA NFA2DFA() {
-        Integer[][] dtran = new Integer[cells.size()][this.alphabet.size()];
-        for (int i = 0; i < cells.size(); i++) {
-            for (int j = 0; j < this.alphabet.size(); j++) {
-                dtran[i][j] = -1;
-            }
+        int[] classOf = charClasses();
+        int k = 0;
+        for (int charClass : classOf) {
+            k = Math.max(k, charClass + 1);
         }
-        List<Character> alphabet = new ArrayList<>(this.alphabet);
-        List<Set<Integer>> states = new ArrayList<>();
-        Set<Integer> e0 = eclosure(0);
+
+        int n = cells.size();
+        int words = (n + 63) >>> 6;
+        int[] stack = new int[n];
+        List<long[]> states = new ArrayList<>();
+        Map<StateSet, Integer> index = new HashMap<>();
+        int[] trans = new int[16 * Math.max(k, 1)];
+
+        long[] e0 = new long[words];
+        e0[0] = 1L;
+        eclosure(e0, stack);
         states.add(e0);
-        int stateCursor = 0;
-        while (stateCursor < states.size()) {
-            Set<Integer> notLabeled = states.get(stateCursor);
-            int alpahbetCount = -1;
-            for (char i : alphabet) {
-                alpahbetCount++;
-                Set<Integer> u = eclosure(move(notLabeled, i));
-                if (!u.isEmpty()) {
-                    if (!states.contains(u)) {
+        index.put(new StateSet(e0), 0);
+
+        long[][] moves = new long[k][words];
+        boolean[] hit = new boolean[k];
+        for (int stateCursor = 0; stateCursor < states.size(); stateCursor++) {
+            long[] notLabeled = states.get(stateCursor);
+            for (int word = 0; word < words; word++) {
+                for (long bits = notLabeled[word]; bits != 0; bits &= bits - 1) {
+                    NFACell cell = cells.get((word << 6) + Long.numberOfTrailingZeros(bits));
+                    for (int i = 0; i < cell.stransCount; i++) {
+                        int column = classOf[cell.symbols[i]];
+                        int next = cell.strans[i];
+                        moves[column][next >>> 6] |= 1L << next;
+                        hit[column] = true;
+                    }
+                }
+            }
+
+            if (trans.length < states.size() * k + k) {
+                trans = Arrays.copyOf(trans, trans.length * 2);
+            }
+            for (int column = 0; column < k; column++) {
+                int target = -1;
+                if (hit[column]) {
+                    long[] u = moves[column];
+                    eclosure(u, stack);
+                    StateSet key = new StateSet(u);
+                    Integer found = index.get(key);
+                    if (found == null) {
+                        found = states.size();
                         states.add(u);
+                        index.put(key, found);
+                        moves[column] = new long[words];
+                    } else {
+                        Arrays.fill(u, 0L);
+                    }
+                    target = found;
+                    hit[column] = false;
+                }
+                trans[stateCursor * k + column] = target;
+            }
+        }
+
+        int[] tokens = new int[states.size()];
+        for (int i = 0; i < states.size(); i++) {
+            tokens[i] = -1;
+            long[] state = states.get(i);
+            if (acceptTokens.isEmpty()) {
+                if ((state[(n - 1) >>> 6] & (1L << (n - 1))) != 0) {
+                    tokens[i] = 0;
+                }
+            } else {
+                for (Map.Entry<Integer, Integer> entry : acceptTokens.entrySet()) {
+                    int cell = entry.getKey();
+                    if ((state[cell >>> 6] & (1L << cell)) != 0) {
+                        tokens[i] = RegexUtil.prior(tokens[i], entry.getValue());
                     }
-                    dtran[stateCursor][alpahbetCount] = states.indexOf(u);
                 }
             }
-            stateCursor++;
         }
-        return new DFA(states, alphabet, dtran, cells.size() - 1);
+        return new DFA(classOf, k, Arrays.copyOf(trans, states.size() * k), tokens).minimize();
+    }
+
+    // hash key of a DFA state, the bitset of NFA cells it contains
+    private static class StateSet {
+        private final long[] bits;
+        private final int hash;
+
+        StateSet(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof StateSet)) return false;
+            return Arrays.equals(bits, ((StateSet) o).bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 }
\ No newline at end of file
@@ -1,22 +1,31 @@
 package scanner;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.Arrays;
 
 public class NFACell {
-    public final Set<Integer> etrans = new HashSet<>();
-    public final Map<Character, Set<Integer>> strans = new HashMap<>();
+    // epsilon targets in etrans[0 .. etransCount)
+    public int[] etrans = new int[2];
+    public int etransCount = 0;
+    // labelled edges, symbols[i] leads to strans[i]
+    public char[] symbols = new char[1];
+    public int[] strans = new int[1];
+    public int stransCount = 0;
 
     public void addTransition(char input, int next) {
-        Set<Integer> set = strans.computeIfAbsent(input, k -> new HashSet<>());
-        set.add(next);
+        if (stransCount == strans.length) {
+            symbols = Arrays.copyOf(symbols, stransCount * 2);
+            strans = Arrays.copyOf(strans, stransCount * 2);
+        }
+        symbols[stransCount] = input;
+        strans[stransCount++] = next;
     }
 
     public void addEpsilon(int next) {
-        etrans.add(next);
+        if (etransCount == etrans.length) {
+            etrans = Arrays.copyOf(etrans, etransCount * 2);
+        }
+        etrans[etransCount++] = next;
     }
 
 
-}
\ No newline at end of file
+}
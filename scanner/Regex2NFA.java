@@ -2,12 +2,16 @@ package scanner;
 
 import error.ErrorMessage;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 
 public class Regex2NFA {
 
     public static RegexTreeCell regex2Tree(String regex) throws ErrorMessage {
-        String postfix = RegexUtil.infix2postfix(regex);
+        List<char[]> classes = new ArrayList<>();
+        String postfix = RegexUtil.infix2postfix(regex, classes);
         Stack<RegexTreeCell> s = new Stack<>();
         for (int i = 0; i < postfix.length(); i++) {
             switch (postfix.charAt(i)) {
@@ -33,8 +37,14 @@ public class Regex2NFA {
                     s.push(cell4);
                 }
                 default -> {
-                    RegexTreeCell cell5 = new BaseTreeCell.CharCell(postfix.charAt(i));
-                    s.push(cell5);
+                    int classIndex = postfix.charAt(i) - RegexUtil.CLASS_BASE;
+                    if (classIndex >= 0 && classIndex < classes.size()) {
+                        RegexTreeCell cell6 = new BaseTreeCell.ClassCell(classes.get(classIndex));
+                        s.push(cell6);
+                    } else {
+                        RegexTreeCell cell5 = new BaseTreeCell.CharCell(postfix.charAt(i));
+                        s.push(cell5);
+                    }
                 }
             }
         }
@@ -48,4 +58,16 @@ public class Regex2NFA {
         return context;
     }
 
+    // union all token regexes under one start cell, each end cell accepts its token
+    public static NFA regex2NFA(Map<Integer, String> id2regex) throws ErrorMessage {
+        NFA context = new NFA();
+        int start = context.addCell();
+        for (Map.Entry<Integer, String> entry : id2regex.entrySet()) {
+            IntegerPair pair = regex2Tree(entry.getValue()).construct(context);
+            context.addEpsilon(start, pair.getFormer());
+            context.addAccept(pair.getLatter(), entry.getKey());
+        }
+        return context;
+    }
+
 }
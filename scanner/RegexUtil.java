@@ -3,7 +3,6 @@ package scanner;
 import error.ErrorMessage;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * & = concat
@@ -11,6 +10,8 @@ import java.util.stream.Collectors;
  * @ # = bracket
  * $ ^ = kleene closure bracket
  * ~ = epsilon
+ * [a-z_] = character class with ranges
+ * \ = escape, e.g. \[ for a literal bracket
  */
 
 
@@ -19,7 +20,14 @@ public class RegexUtil {
     public static final Map<Integer, String> id2regex = new HashMap<>();
     public static final Map<Integer, String> id2name = new HashMap<>();
     public static final Map<String, Integer> regex2id = new HashMap<>();
-    public static final Set<Character> alphabet = new HashSet<>();
+    // plain words are scanned as identifiers and classified by KeywordTable, the rest go into the automaton
+    public static final Map<Integer, String> id2keyword = new HashMap<>();
+    public static final Map<Integer, String> id2pattern = new HashMap<>();
+    // valid input characters, indexed by ASCII code
+    public static final boolean[] alphabet = new boolean[128];
+
+    // classes and escapes are replaced by private use characters before parsing
+    static final char CLASS_BASE = '\uE000';
 
     static {
         // we omit the error and EOF here since we treat them specially
@@ -39,9 +47,9 @@ public class RegexUtil {
         id2regex.put(25, ">");
         id2regex.put(30, ".");
         id2regex.put(31, ",");
-        id2regex.put(32, "[");
+        id2regex.put(32, "\\[");
         id2regex.put(33, "(");
-        id2regex.put(34, "]");
+        id2regex.put(34, "\\]");
         id2regex.put(35, ")");
         id2regex.put(40, ":=");
         id2regex.put(41, "then");
@@ -49,8 +57,8 @@ public class RegexUtil {
         id2regex.put(43, "until");
         id2regex.put(51, "++");
         id2regex.put(52, "--");
-        id2regex.put(60, "@0|1|2|3|4|5|6|7|8|9#$0|1|2|3|4|5|6|7|8|9^");
-        id2regex.put(61, "@a|b|c|d|e|f|g|h|i|j|k|l|m|n|o|p|q|r|s|t|u|v|w|x|y|z|A|B|C|D|E|F|G|H|I|J|K|L|M|N|O|P|Q|R|S|T|U|V|W|X|Y|Z#$_|a|b|c|d|e|f|g|h|i|j|k|l|m|n|o|p|q|r|s|t|u|v|w|x|y|z|A|B|C|D|E|F|G|H|I|J|K|L|M|N|O|P|Q|R|S|T|U|V|W|X|Y|Z|0|1|2|3|4|5|6|7|8|9^");
+        id2regex.put(60, "[0-9]$[0-9]^");
+        id2regex.put(61, "[a-zA-Z]$[_a-zA-Z0-9]^");
         id2regex.put(62, "_");
         id2regex.put(63, "void");
         id2regex.put(70, ";");
@@ -123,30 +131,120 @@ public class RegexUtil {
 
         for (Map.Entry<Integer, String> entry : id2regex.entrySet()) {
             regex2id.put(entry.getValue(), entry.getKey());
-            if (entry.getKey() == 60) {
-                alphabet.addAll("0123456789".chars().mapToObj(e->(char)e).collect(Collectors.toSet()));
-            } else if (entry.getKey() == 61) {
-                alphabet.add('_');
-                alphabet.addAll("abcdefghijklmnopqrstuvwxyz0123456789".chars().mapToObj(e->(char)e).collect(Collectors.toSet()));
-                alphabet.addAll("abcdefghijklmnopqrstuvwxyz".toUpperCase().chars().mapToObj(e->(char)e).collect(Collectors.toSet()));
+            if (entry.getKey() != 61 && entry.getValue().matches("[a-zA-Z]+")) {
+                id2keyword.put(entry.getKey(), entry.getValue());
             } else {
-                alphabet.addAll(entry.getValue().chars().mapToObj(e->(char)e).collect(Collectors.toSet()));
+                id2pattern.put(entry.getKey(), entry.getValue());
+            }
+            try {
+                for (char c : characters(entry.getValue())) {
+                    alphabet[c] = true;
+                }
+            } catch (ErrorMessage e) {
+                e.printStackTrace();
             }
         }
-        alphabet.add(' ');
-        alphabet.add('\r');
-        alphabet.add('\n');
-        alphabet.add('\t');
-        alphabet.add('\\');
+        for (char c : " \r\n\t\\".toCharArray()) {
+            alphabet[c] = true;
+        }
 
         // other maybe alphabets
-        alphabet.add('?');
-        alphabet.add(':');
+        alphabet['?'] = true;
+        alphabet[':'] = true;
+
+    }
+
+    public static boolean inAlphabet(char c) {
+        return c < alphabet.length && alphabet[c];
+    }
 
+    // every character a regex can match
+    public static Set<Character> characters(String regex) throws ErrorMessage {
+        List<char[]> classes = new ArrayList<>();
+        String expanded = expandClasses(regex, classes);
+        Set<Character> characters = new TreeSet<>();
+        for (int i = 0; i < expanded.length(); i++) {
+            char c = expanded.charAt(i);
+            if (c >= CLASS_BASE && c < CLASS_BASE + classes.size()) {
+                for (char member : classes.get(c - CLASS_BASE)) {
+                    characters.add(member);
+                }
+            } else if (isCharacter(c) && c != '~') {
+                characters.add(c);
+            }
+        }
+        return characters;
+    }
+
+    // replace [...] classes and \x escapes by placeholder operands, their characters are collected in classes
+    static String expandClasses(String regex, List<char[]> classes) throws ErrorMessage {
+        StringBuilder expanded = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 == regex.length()) {
+                    throw new ErrorMessage("Lexical Analysis", "Valid character input", "Dangling escape in regex " + regex);
+                }
+                classes.add(new char[]{regex.charAt(i + 1)});
+                expanded.append((char) (CLASS_BASE + classes.size() - 1));
+                i += 2;
+            } else if (c == '[') {
+                StringBuilder members = new StringBuilder();
+                i++;
+                while (i < regex.length() && regex.charAt(i) != ']') {
+                    char from = regex.charAt(i);
+                    if (from == '\\' && i + 1 < regex.length()) {
+                        from = regex.charAt(++i);
+                    }
+                    if (i + 2 < regex.length() && regex.charAt(i + 1) == '-' && regex.charAt(i + 2) != ']') {
+                        char to = regex.charAt(i + 2);
+                        for (char member = from; member <= to; member++) {
+                            members.append(member);
+                        }
+                        i += 3;
+                    } else {
+                        members.append(from);
+                        i++;
+                    }
+                }
+                if (i == regex.length() || members.length() == 0) {
+                    throw new ErrorMessage("Lexical Analysis", "Valid character input", "Wrong character class in regex " + regex);
+                }
+                classes.add(members.toString().toCharArray());
+                expanded.append((char) (CLASS_BASE + classes.size() - 1));
+                i++;
+            } else {
+                expanded.append(c);
+                i++;
+            }
+        }
+        return expanded.toString();
+    }
+
+    // FNV-1a over the sorted token regexes, changes whenever the token set does
+    public static long fingerprint() {
+        long hash = 0xcbf29ce484222325L;
+        for (Map.Entry<Integer, String> entry : new TreeMap<>(id2regex).entrySet()) {
+            String key = entry.getKey() + "=" + entry.getValue() + ";";
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    // the smaller token id wins, keywords never reach the automaton
+    public static int prior(int token, int candidate) {
+        if (token == -1) {
+            return candidate;
+        }
+        return Math.min(token, candidate);
     }
 
-    public static String infix2postfix(String infixRegex) throws ErrorMessage {
-        infixRegex = addConcat(infixRegex);
+    public static String infix2postfix(String infixRegex, List<char[]> classes) throws ErrorMessage {
+        infixRegex = addConcat(expandClasses(infixRegex, classes));
         Stack<Character> operatorStack = new Stack<>();
         StringBuilder postfix = new StringBuilder();
         for (int i = 0; i < infixRegex.length(); i++) {